@@ -0,0 +1,51 @@
+package ai;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+    The full analysis of a board, which the search does for every node that isn't decided by the scoreMap. The search
+    reuses one BoardAnalyser per searcher (analyse), which doesn't allocate anything. analyseNewAnalyser creates a new
+    analyser for every board like the search did before, it shows what the reuse saves (see -prof gc).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyserBenchmark {
+    @Param({"EARLY", "MIDDLE", "LATE"})
+    public Positions.Stage stage;
+
+    private BitBoard board;
+    private BoardAnalyser analyser;
+
+    @Setup
+    public void setUp() {
+        board = Positions.board(stage);
+        analyser = new BoardAnalyser(board.getWidth(), board.getHeight());
+    }
+
+    @Benchmark
+    public BoardAnalyser analyse() {
+        analyser.analyse(board, false);
+        return analyser;
+    }
+
+    @Benchmark
+    public BoardAnalyser analyseNewAnalyser() {
+        return new BoardAnalyser(board, false);
+    }
+}
@@ -0,0 +1,49 @@
+package ai;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// the work of the search per node besides the analysis: generating the moves and scoring a leaf
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluationBenchmark {
+    @Param({"EARLY", "MIDDLE", "LATE"})
+    public Positions.Stage stage;
+
+    private final HardMinMax engine = new HardMinMax(new BoardStorage(1));
+    private BitBoard board;
+    private BoardAnalyser analyser;
+
+    @Setup
+    public void setUp() {
+        board = Positions.board(stage);
+        analyser = new BoardAnalyser(board, false);
+        // also sets up the searcher and the default factors
+        engine.generateMoves(board, analyser.vertical, Player.V);
+    }
+
+    @Benchmark
+    public int generateMoves() {
+        return engine.generateMoves(board, analyser.vertical, Player.V);
+    }
+
+    @Benchmark
+    public float scoreSituation() {
+        return engine.scoreSituation(0, analyser.vertical, analyser.horizontal);
+    }
+}
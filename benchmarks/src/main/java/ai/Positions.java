@@ -0,0 +1,67 @@
+package ai;
+
+import java.util.Random;
+
+/*
+    The fixed corpus of the benchmarks: 13x13 positions (the size of Game) from the early, middle and late game. The
+    positions are played with random legal moves from a fixed seed. java.util.Random is specified exactly, so every
+    run on every JVM gets the same positions.
+
+    Other board sizes (for the ScalingBenchmark) get the same share of occupied squares as the 13x13 positions of the
+    stage, so the positions of all sizes are from the same phase of the game.
+ */
+public final class Positions {
+    public static final int SIZE = 13;
+
+    private Positions() {
+    }
+
+    public enum Stage {
+        // number of pieces on the board and the seed of the random game
+        EARLY(6, 1),
+        MIDDLE(30, 2),
+        LATE(50, 3);
+
+        private final int pieces;
+        private final long seed;
+
+        Stage(int pieces, long seed) {
+            this.pieces = pieces;
+            this.seed = seed;
+        }
+    }
+
+    // a new 13x13 board of the given stage, V has to move next
+    public static BitBoard board(Stage stage) {
+        return board(stage, SIZE, SIZE);
+    }
+
+    public static BitBoard board(Stage stage, int width, int height) {
+        BitBoard board = new BitBoard(width, height);
+        Random random = new Random(stage.seed);
+        Player player = Player.V;
+        int[] moves = new int[2 * width * height];
+        // rounded to an even number, so V is the next player
+        int pieces = 2 * Math.round(stage.pieces * width * height / (2f * SIZE * SIZE));
+        for (int piece = 0; piece < pieces; piece++) {
+            int count = 0;
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    if (board.canPlace(x, y, player)) {
+                        moves[count++] = Coordinate.pack(x, y);
+                    }
+                }
+            }
+            if (count == 0) {
+                throw new IllegalStateException("The random game of " + stage + " ended after " + piece + " pieces");
+            }
+            int move = moves[random.nextInt(count)];
+            board.place(Coordinate.unpackX(move), Coordinate.unpackY(move), player);
+            player = player.getOtherPlayer();
+        }
+        if (player != Player.V) {
+            throw new IllegalStateException("The positions need an even number of pieces");
+        }
+        return board;
+    }
+}
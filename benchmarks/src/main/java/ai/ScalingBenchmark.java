@@ -0,0 +1,80 @@
+package ai;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+    How the speed changes with the size of the board: the placement masks (a single long up to 8x8, several longs
+    above) and a complete search with a fixed depth, both for positions from the middle of the game. The nodes counter
+    of the search is reported as nodes per second, which is the number to compare between the sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScalingBenchmark {
+    // width x height
+    @Param({"6x6", "8x8", "8x12", "13x13", "16x16", "24x24", "32x32"})
+    public String size;
+
+    @Param({"MIDDLE"})
+    public Positions.Stage stage;
+
+    @Param({"2"})
+    public int depth;
+
+    private BitBoard board;
+
+    // only the search needs an empty table and a new engine for every invocation, the placements benchmark is too
+    // short for that
+    @State(Scope.Thread)
+    public static class Engine {
+        private final BoardStorage storage = new BoardStorage(16);
+        private HardMinMax engine;
+
+        @Setup(Level.Invocation)
+        public void resetSearch() {
+            storage.clear();
+            engine = new HardMinMax(storage);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup
+    public void setUp() {
+        String[] dimensions = size.split("x");
+        board = Positions.board(stage, Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+    }
+
+    @Benchmark
+    public int countPlacements() {
+        return board.countPlacements(Player.V) + board.countPlacements(Player.H);
+    }
+
+    @Benchmark
+    public Coordinate findBestMove(Engine search, Nodes counter) {
+        Coordinate move = search.engine.searchFixedDepth(board, Player.V, depth);
+        counter.nodes += search.engine.getSearchedNodes();
+        return move;
+    }
+}
@@ -0,0 +1,65 @@
+package ai;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+    A complete search with a fixed depth limit. Every search starts with an empty table and a new engine, otherwise all
+    but the first invocation would only read the results of the first one (and start with its move order and regions).
+    Besides the searches per second, JMH reports the nodes counter as nodes per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"EARLY", "MIDDLE", "LATE"})
+    public Positions.Stage stage;
+
+    @Param({"3"})
+    public int depth;
+
+    private final BoardStorage storage = new BoardStorage(16);
+    private HardMinMax engine;
+    private BitBoard board;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup
+    public void setUp() {
+        board = Positions.board(stage);
+    }
+
+    // the history of the move order and the solved regions are kept by the engine, so only the table is reused
+    @Setup(Level.Invocation)
+    public void resetSearch() {
+        storage.clear();
+        engine = new HardMinMax(storage);
+    }
+
+    @Benchmark
+    public Coordinate findBestMove(Nodes counter) {
+        Coordinate move = engine.searchFixedDepth(board, Player.V, depth);
+        counter.nodes += engine.getSearchedNodes();
+        return move;
+    }
+}
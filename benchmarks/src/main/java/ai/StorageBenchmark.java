@@ -0,0 +1,59 @@
+package ai;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// put and get of the transposition table with random keys, which is what the Zobrist keys of a search look like
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageBenchmark {
+    // more keys than the table has entries, so some of them are replaced and some probes miss
+    private static final int KEY_COUNT = 1 << 22;
+
+    private final BoardStorage storage = new BoardStorage(BoardStorage.DEFAULT_SIZE_MB);
+    private final BoardStorage.StateInfo info = new BoardStorage.StateInfo();
+    private final long[] keys = new long[KEY_COUNT];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = random.nextLong();
+        }
+        info.type = '=';
+        info.depth = 4;
+        info.move = Coordinate.pack(3, 4);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            info.score = i;
+            storage.put(keys[i], info);
+        }
+    }
+
+    @Benchmark
+    public void put() {
+        int i = next++ & (KEY_COUNT - 1);
+        info.score = i;
+        storage.put(keys[i], info);
+    }
+
+    @Benchmark
+    public boolean get() {
+        return storage.get(keys[next++ & (KEY_COUNT - 1)], info);
+    }
+}
@@ -1,5 +1,12 @@
 package ai;
 
+import java.time.Duration;
+
 public abstract class AI {
     public abstract Coordinate playMove(char[][] board, Player player);
+
+    // AIs without a time control just ignore the budget
+    public Coordinate playMove(char[][] board, Player player, Duration budget) {
+        return playMove(board, player);
+    }
 }
@@ -1,24 +1,35 @@
 package ai;
 
-public abstract class Area {
-    protected final Coordinate cornerUL;  // "upper-left"-corner
-    protected final Coordinate cornerLR;   // "lower-right"-corner
+/*
+    Areas are not stored as objects, but as packed ints to keep the analysis free of allocations. The lower 16 bits
+    contain the packed upper-left corner (see Coordinate.pack), the upper 16 bits contain additional information which
+    depends on the kind of area (option flags, protect spot, weight). The shape of an area is implied by its kind and
+    the player it belongs to, so the lower-right corner doesn't have to be stored.
+ */
+public final class Area {
+    private static final int COORDINATE_MASK = 0xFFFF;
 
-    public Area(int startX, int startY, int endX, int endY) {
-        cornerUL = new Coordinate(startX, startY);
-        cornerLR = new Coordinate(endX, endY);
+    private Area() {
     }
 
-    public Coordinate getCornerUL() {
-        return cornerUL;
+    public static int pack(int x, int y, int info) {
+        return Coordinate.pack(x, y) | (info << 16);
     }
 
-    public Coordinate getCornerLR() {
-        return cornerLR;
+    public static int getX(int area) {
+        return Coordinate.unpackX(area);
     }
 
-    // return true if the given point is not contained in the area
-    public boolean contains(int x, int y) {
-        return x >= cornerLR.getX() && x <= cornerLR.getX() && y >= cornerUL.getY() && y <= cornerLR.getY();
+    public static int getY(int area) {
+        return Coordinate.unpackY(area);
+    }
+
+    public static int getInfo(int area) {
+        return area >>> 16;
+    }
+
+    // the packed upper-left corner without any additional information
+    public static int getCornerUL(int area) {
+        return area & COORDINATE_MASK;
     }
 }
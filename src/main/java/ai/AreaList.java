@@ -0,0 +1,44 @@
+package ai;
+
+import java.util.Arrays;
+
+/*
+    A list of packed areas (see Area) backed by a plain int array. Clearing the list only resets the size, so a list
+    which is reused for every analysis stops allocating as soon as it reached the largest size needed.
+ */
+public final class AreaList {
+    private int[] areas;
+    private int size;
+
+    public AreaList(int capacity) {
+        this.areas = new int[Math.max(capacity, 1)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int index) {
+        return areas[index];
+    }
+
+    public void set(int index, int area) {
+        areas[index] = area;
+    }
+
+    public void add(int area) {
+        if (size == areas.length) {
+            areas = Arrays.copyOf(areas, areas.length * 2);
+        }
+        areas[size++] = area;
+    }
+
+    public void removeAt(int index) {
+        System.arraycopy(areas, index + 1, areas, index, size - index - 1);
+        size--;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,359 @@
+package ai;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    Compact representation of an anonymized board. Every square is a single bit which is set if the square is occupied
+    (X) and cleared if it is empty (E). The squares are stored column by column, so the square (x, y) is found at the
+    index x * height + y. For the standard 13x13 board, the 169 squares fit into three longs. Boards with up to 64
+    squares (e.g. 8x8) fit into a single long, their placements are calculated without any loops over the words. Any
+    rectangle up to MAX_SIZE x MAX_SIZE is supported, the width and the height don't have to be the same.
+
+    With this layout, the second square of a vertical piece is always the next bit and the second square of a
+    horizontal piece is always "height" bits further. The masks of all legal placements can therefore be computed with
+    a few shifts and ANDs for the whole board at once instead of testing every square on its own.
+
+    Besides the key of the board itself, the board can keep the keys of all its symmetric variants (see Symmetry) up to
+    date. Every changed square simply changes the key of each variant at the square it is moved to by the symmetry. The
+    smallest of these keys identifies all symmetric positions at once, without ever mirroring the board. Only the
+    sharing of symmetric positions and the opening book use them, so they are calculated the first time one of them is
+    asked for and only updated from then on (copies of the board keep updating them).
+ */
+public final class BitBoard {
+    // the coordinates of the moves are packed into 8 bits each (see Coordinate.pack), and the BoardStorage stores a
+    // packed move plus one in 16 bits, so the last square of a 256x256 board would collide with "no move"
+    public static final int MAX_SIZE = 255;
+
+    private final int width;
+    private final int height;
+    private final long[] occupied;
+
+    // for each board size (width << 8 | height), symmetry and square index: the Zobrist key of the square the symmetry
+    // moves it to, the tables are shared by all boards of the same size
+    private static final Map<Integer, long[][]> SQUARE_KEYS = new ConcurrentHashMap<>();
+
+    // Zobrist key of the current position, updated with an XOR whenever a square changes
+    private long key;
+    // the keys of the position transformed with each symmetry, null until they are asked for (see getKey(int))
+    private long[] symmetricKeys;
+    private final long[][] symmetricSquareKeys;
+
+    // all bits which represent a square on the board (the remaining bits of the last word are always unset)
+    private final long[] boardMask;
+    // all squares which can be the upper square of a vertical piece (every square except the ones in the last row)
+    private final long[] verticalMask;
+
+    // temporary storage for the placement calculations, so no new arrays have to be allocated
+    private final long[] scratch;
+    private final long[] placementScratch;
+
+    public BitBoard(int width, int height) {
+        if (width < 1 || height < 1 || width > MAX_SIZE || height > MAX_SIZE) {
+            throw new IllegalArgumentException("Unsupported board size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+
+        int words = (width * height + 63) >>> 6;
+        this.occupied = new long[words];
+        this.boardMask = new long[words];
+        this.verticalMask = new long[words];
+        this.scratch = new long[words];
+        this.placementScratch = new long[words];
+
+        this.key = Zobrist.boardKey(width, height);
+        this.symmetricSquareKeys = SQUARE_KEYS.computeIfAbsent(width << 8 | height,
+                size -> symmetricSquareKeys(width, height));
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int index = x * height + y;
+                boardMask[index >>> 6] |= 1L << index;
+                if (y < height - 1) {
+                    verticalMask[index >>> 6] |= 1L << index;
+                }
+            }
+        }
+    }
+
+    private static long[][] symmetricSquareKeys(int width, int height) {
+        int symmetries = Symmetry.count(width, height);
+        long[][] squareKeys = new long[symmetries][width * height];
+        for (int symmetry = 0; symmetry < symmetries; symmetry++) {
+            // transposed variants have swapped dimensions (only possible for square boards, so nothing changes)
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    int square = Symmetry.transformSquare(symmetry, x, y, width, height);
+                    squareKeys[symmetry][x * height + y] = Zobrist.squareKey(
+                            Coordinate.unpackX(square) * height + Coordinate.unpackY(square));
+                }
+            }
+        }
+        return squareKeys;
+    }
+
+    // copies share the constant masks, only the occupied squares are duplicated
+    private BitBoard(BitBoard other) {
+        this.width = other.width;
+        this.height = other.height;
+        this.occupied = Arrays.copyOf(other.occupied, other.occupied.length);
+        this.key = other.key;
+        this.symmetricKeys = other.symmetricKeys != null
+                ? Arrays.copyOf(other.symmetricKeys, other.symmetricKeys.length)
+                : null;
+        this.symmetricSquareKeys = other.symmetricSquareKeys;
+        this.boardMask = other.boardMask;
+        this.verticalMask = other.verticalMask;
+        this.scratch = new long[other.scratch.length];
+        this.placementScratch = new long[other.scratch.length];
+    }
+
+    // every square which is not 'E' (empty) is considered occupied
+    public static BitBoard fromBoard(char[][] board) {
+        BitBoard bitBoard = new BitBoard(board.length, board[0].length);
+        for (int x = 0; x < board.length; x++) {
+            for (int y = 0; y < board[0].length; y++) {
+                if (board[x][y] != 'E') {
+                    bitBoard.set(x, y);
+                }
+            }
+        }
+        return bitBoard;
+    }
+
+    public BitBoard copy() {
+        return new BitBoard(this);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isEmpty(int x, int y) {
+        int index = x * height + y;
+        return (occupied[index >>> 6] & (1L << index)) == 0;
+    }
+
+    // the 64-bit Zobrist key of the current position (identical positions always have identical keys)
+    public long getKey() {
+        return key;
+    }
+
+    public int symmetryCount() {
+        return symmetricSquareKeys.length;
+    }
+
+    // the key of the position transformed with the given symmetry
+    public long getKey(int symmetry) {
+        if (symmetry == Symmetry.IDENTITY) {
+            return key;
+        }
+        if (symmetricKeys == null) {
+            // from now on, every changed square updates the keys of the variants as well
+            symmetricKeys = new long[symmetricSquareKeys.length];
+            for (int variant = 0; variant < symmetricKeys.length; variant++) {
+                symmetricKeys[variant] = Zobrist.boardKey(width, height);
+                for (int word = 0; word < occupied.length; word++) {
+                    for (long bits = occupied[word]; bits != 0; bits &= bits - 1) {
+                        symmetricKeys[variant] ^= symmetricSquareKeys[variant][(word << 6)
+                                + Long.numberOfTrailingZeros(bits)];
+                    }
+                }
+            }
+        }
+        return symmetricKeys[symmetry];
+    }
+
+    // squares which are already occupied are left untouched, so the key stays consistent with the bits
+    public void set(int x, int y) {
+        int index = x * height + y;
+        long bit = 1L << index;
+        if ((occupied[index >>> 6] & bit) == 0) {
+            occupied[index >>> 6] |= bit;
+            updateKeys(index);
+        }
+    }
+
+    public void clear(int x, int y) {
+        int index = x * height + y;
+        long bit = 1L << index;
+        if ((occupied[index >>> 6] & bit) != 0) {
+            occupied[index >>> 6] &= ~bit;
+            updateKeys(index);
+        }
+    }
+
+    private void updateKeys(int index) {
+        key ^= symmetricSquareKeys[Symmetry.IDENTITY][index];
+        if (symmetricKeys != null) {
+            for (int symmetry = 0; symmetry < symmetricKeys.length; symmetry++) {
+                symmetricKeys[symmetry] ^= symmetricSquareKeys[symmetry][index];
+            }
+        }
+    }
+
+    // places a piece of the given player with its upper-left square on (x, y)
+    public void place(int x, int y, Player player) {
+        set(x, y);
+        if (player == Player.V) {
+            set(x, y + 1);
+        } else {
+            set(x + 1, y);
+        }
+    }
+
+    // removes a piece which was placed with the same arguments before
+    public void remove(int x, int y, Player player) {
+        clear(x, y);
+        if (player == Player.V) {
+            clear(x, y + 1);
+        } else {
+            clear(x + 1, y);
+        }
+    }
+
+    // tests if the piece of the given player fits fully onto the board and only covers empty squares
+    public boolean canPlace(int x, int y, Player player) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        if (player == Player.V) {
+            return y + 1 < height && isEmpty(x, y) && isEmpty(x, y + 1);
+        }
+        return x + 1 < width && isEmpty(x, y) && isEmpty(x + 1, y);
+    }
+
+    public int occupiedCount() {
+        int count = 0;
+        for (long word : occupied) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /*
+        Writes the mask of all legal placements of the given player into "out". A set bit marks the upper-left square
+        of a piece which could be placed right now. A piece fits if its square and the square one step (vertical) or one
+        column (horizontal) further are both empty, which is just the empty mask ANDed with a shifted copy of itself.
+     */
+    public void placements(Player player, long[] out) {
+        if (occupied.length == 1) {
+            long empty = ~occupied[0] & boardMask[0];
+            if (player == Player.V) {
+                out[0] = empty & (empty >>> 1) & verticalMask[0];
+            } else {
+                // a single column of 64 squares has no horizontal placements (and a shift by 64 would be a shift by 0)
+                out[0] = height < 64 ? empty & (empty >>> height) : 0;
+            }
+            return;
+        }
+        for (int i = 0; i < occupied.length; i++) {
+            scratch[i] = ~occupied[i] & boardMask[i];
+        }
+        shiftDown(scratch, player == Player.V ? 1 : height, out);
+        for (int i = 0; i < occupied.length; i++) {
+            out[i] &= scratch[i];
+            if (player == Player.V) {
+                out[i] &= verticalMask[i];
+            }
+        }
+    }
+
+    // the number of pieces the given player could place right now (each placement on its own)
+    public int countPlacements(Player player) {
+        long[] mask = placementScratch;
+        placements(player, mask);
+        int count = 0;
+        for (long word : mask) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // returns the first legal placement for the given player in the natural scan order or null if there is none
+    public Coordinate firstPlacement(Player player) {
+        long[] mask = placementScratch;
+        placements(player, mask);
+        for (int i = 0; i < mask.length; i++) {
+            if (mask[i] != 0) {
+                int index = (i << 6) + Long.numberOfTrailingZeros(mask[i]);
+                return new Coordinate(index / height, index % height);
+            }
+        }
+        return null;
+    }
+
+    // the occupied squares of column x, square (x, y) is bit y (only for boards with a height of at most 64)
+    public long column(int x) {
+        int index = x * height;
+        int word = index >>> 6;
+        int bit = index & 63;
+        long value = occupied[word] >>> bit;
+        if (bit != 0 && word + 1 < occupied.length) {
+            value |= occupied[word + 1] << (64 - bit);
+        }
+        return height == 64 ? value : value & ((1L << height) - 1);
+    }
+
+    // number of longs used for the masks of this board
+    public int wordCount() {
+        return occupied.length;
+    }
+
+    // fills the given char array with 'X' for occupied and 'E' for empty squares
+    public void fill(char[][] board) {
+        int index = 0;
+        for (int x = 0; x < width; x++) {
+            char[] column = board[x];
+            for (int y = 0; y < height; y++, index++) {
+                column[y] = (occupied[index >>> 6] & (1L << index)) == 0 ? 'E' : 'X';
+            }
+        }
+    }
+
+    // same as fill, but only for the column x
+    public void fill(char[] column, int x) {
+        int index = x * height;
+        for (int y = 0; y < height; y++, index++) {
+            column[y] = (occupied[index >>> 6] & (1L << index)) == 0 ? 'E' : 'X';
+        }
+    }
+
+    // shifts the whole multi-word bit string towards the lower indices (out[i] = in[i + n])
+    private static void shiftDown(long[] in, int n, long[] out) {
+        int wordShift = n >>> 6;
+        int bitShift = n & 63;
+        for (int i = 0; i < in.length; i++) {
+            int source = i + wordShift;
+            long value = source < in.length ? in[source] >>> bitShift : 0;
+            if (bitShift != 0 && source + 1 < in.length) {
+                value |= in[source + 1] << (64 - bitShift);
+            }
+            out[i] = value;
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BitBoard)) {
+            return false;
+        }
+        BitBoard other = (BitBoard) obj;
+        return width == other.width && height == other.height && Arrays.equals(occupied, other.occupied);
+    }
+
+    @Override
+    public int hashCode() {
+        long key = getKey();
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,373 @@
+package ai;
+
+/*
+    The analysis of BoardAnalyser.analyseBoard with bit operations on whole columns instead of char comparisons for
+    every single square. Every column is a long in which bit y is the square (x, y), so this only works for boards with
+    a height of up to 64. The neighbours of a square are the same bit of the columns x - 1 and x + 1 and the bits y - 1
+    and y + 1 of the column itself (a shift by one), so every condition of the area classes turns into ANDs and ORs of
+    shifted columns which test all squares of a column at once.
+
+    The char scan marks the squares of every area it finds ('S', 'P', 'D'), so later areas can't use them again. This
+    greedy order is reproduced exactly:
+        - the walls of all areas are occupied squares, which never change during the analysis. A safe area and a
+          protective area can't overlap anyway (one needs an occupied square where the other one needs an empty one),
+          so the only marks which matter are the ones of the same kind of area
+        - the areas of the columns before are already known, their marks are simply removed from the candidates
+        - within a column, the first (lowest) of several overlapping candidates wins (see chooseGreedy)
+    The areas are added column by column from the lowest bit upwards, which is the order of the scan over the char
+    board, so the lists of the layouts are the same and in the same order.
+ */
+final class BitmaskAnalyser {
+    static final int MAX_HEIGHT = 64;
+
+    private static final int V = Player.V.ordinal();
+    private static final int H = Player.H.ordinal();
+
+    private final int width;
+    private final int height;
+    // all squares of a column and the square in the last row
+    private final long full;
+    private final long lastRow;
+
+    private final long[] occupied;
+    private final long[] empty;
+
+    // for each player (ordinal) and column: the upper left squares of the areas
+    private final long[][] safe;
+    private final long[][] protective;
+    private final long[][] vuln;
+    // the squares covered by safe and protective areas ('S' and 'P') and the ones covered by vulnerable areas ('D')
+    private final long[][] marked;
+    private final long[][] vulnSquares;
+    // the vulnerable areas of type II and the protected ones (only the bits of the areas themselves are meaningful)
+    private final long[][] vulnTypeTwo;
+    private final long[][] vulnProtected;
+
+    BitmaskAnalyser(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.full = height == 64 ? -1L : (1L << height) - 1;
+        this.lastRow = 1L << (height - 1);
+
+        this.occupied = new long[width];
+        this.empty = new long[width];
+        this.safe = new long[2][width];
+        this.protective = new long[2][width];
+        this.vuln = new long[2][width];
+        this.marked = new long[2][width];
+        this.vulnSquares = new long[2][width];
+        this.vulnTypeTwo = new long[2][width];
+        this.vulnProtected = new long[2][width];
+    }
+
+    // adds all areas and the unavailable squares of the board to the (empty) layouts, the bounds are not calculated
+    void analyse(BitBoard board, BoardLayout vertical, BoardLayout horizontal) {
+        for (int x = 0; x < width; x++) {
+            occupied[x] = board.column(x);
+            empty[x] = ~occupied[x] & full;
+        }
+
+        findVerticalSafeAndProtective();
+        findHorizontalSafeAndProtective();
+        addSafeAndProtective(board, vertical);
+        addSafeAndProtective(board, horizontal);
+
+        for (int i = 0; i < vertical.safeAreas.size(); i++) {
+            addOptionAreas(vertical, i);
+        }
+        for (int i = 0; i < horizontal.safeAreas.size(); i++) {
+            addOptionAreas(horizontal, i);
+        }
+
+        findVerticalVuln();
+        findHorizontalVuln();
+        addVuln(vertical);
+        addVuln(horizontal);
+
+        vertical.startAvailableSquares = width * height - board.occupiedCount();
+        horizontal.startAvailableSquares = vertical.startAvailableSquares;
+        for (int x = 0; x < width; x++) {
+            // squares which the opponent's analysis left empty and which are walled in for the player's pieces
+            long freeOfV = empty[x] & ~marked[V][x] & ~vulnSquares[V][x];
+            long freeOfH = empty[x] & ~marked[H][x] & ~vulnSquares[H][x];
+            horizontal.unavailableSquares += Long.bitCount(freeOfV & occupiedOrBorder(x - 1)
+                    & occupiedOrBorder(x + 1));
+            vertical.unavailableSquares += Long.bitCount(freeOfH & above(occupied[x]) & below(occupied[x]));
+        }
+    }
+
+    /*
+        Safe areas (x, y), (x, y + 1) need walls in the columns x - 1 and x + 1, protective areas (the 2x2 square from
+        (x, y)) need walls on one side. Two vertical safe areas in the same column overlap if they are one square apart,
+        protective areas overlap or are adjacent (see ProtectiveArea) to the ones at most one square apart in the column
+        before and the one before that.
+     */
+    private void findVerticalSafeAndProtective() {
+        long[] safeAreas = safe[V];
+        long[] protectiveAreas = protective[V];
+        for (int x = 0; x < width; x++) {
+            long pairs = empty[x] & (empty[x] >>> 1);
+            long left = wallPair(x - 1);
+            safeAreas[x] = chooseGreedy(pairs & left & wallPair(x + 1), 1);
+
+            if (x == width - 1) {
+                protectiveAreas[x] = 0;
+                continue;
+            }
+            long squares = pairs & empty[x + 1] & (empty[x + 1] >>> 1);
+            long blocked = 0;
+            if (x > 0) {
+                blocked |= spread(protectiveAreas[x - 1]);
+            }
+            if (x > 1) {
+                blocked |= spread(protectiveAreas[x - 2]);
+            }
+            protectiveAreas[x] = chooseGreedy(squares & (left | wallPair(x + 2)) & ~blocked, 1);
+        }
+        markSafeAndProtective(V);
+    }
+
+    /*
+        The horizontal areas are the same turned by 90 degrees. The scan still goes column by column, so now the safe
+        areas block the next column and a protective area blocks the next two squares of its column (overlapping and
+        adjacent) and the squares up to two rows away in the next column.
+     */
+    private void findHorizontalSafeAndProtective() {
+        long[] safeAreas = safe[H];
+        long[] protectiveAreas = protective[H];
+        for (int x = 0; x < width; x++) {
+            if (x == width - 1) {
+                safeAreas[x] = 0;
+                protectiveAreas[x] = 0;
+                continue;
+            }
+            long pairs = empty[x] & empty[x + 1];
+            long walls = above(occupied[x]) & above(occupied[x + 1]) & below(occupied[x]) & below(occupied[x + 1]);
+            safeAreas[x] = pairs & walls & ~(x > 0 ? safeAreas[x - 1] : 0);
+
+            long squares = pairs & (pairs >>> 1);
+            long both = occupied[x] & occupied[x + 1];
+            // a wall directly above the square or two rows below it (where the 2x2 square ends)
+            long sides = above(both) | (both >>> 2) | lastRow | (lastRow >>> 1);
+            long blocked = 0;
+            if (x > 0) {
+                long before = protectiveAreas[x - 1];
+                blocked = spread(before) | (before << 2) | (before >>> 2);
+            }
+            protectiveAreas[x] = chooseGreedy(squares & sides & ~blocked, 2);
+        }
+        markSafeAndProtective(H);
+    }
+
+    private void markSafeAndProtective(int p) {
+        for (int x = 0; x < width; x++) {
+            long squares = safe[p][x] | protective[p][x] | (protective[p][x] << 1);
+            if (p == V) {
+                squares |= safe[p][x] << 1;
+            }
+            if (x > 0) {
+                long before = protective[p][x - 1];
+                squares |= before | (before << 1);
+                if (p == H) {
+                    squares |= safe[p][x - 1];
+                }
+            }
+            marked[p][x] = squares & full;
+        }
+    }
+
+    private void addSafeAndProtective(BitBoard board, BoardLayout layout) {
+        int p = layout.player.ordinal();
+        for (int x = 0; x < width; x++) {
+            for (long bits = safe[p][x]; bits != 0; bits &= bits - 1) {
+                layout.safeAreas.add(SafeArea.pack(x, Long.numberOfTrailingZeros(bits)));
+            }
+            for (long bits = protective[p][x]; bits != 0; bits &= bits - 1) {
+                layout.protectiveAreas.add(ProtectiveArea.pack(x, Long.numberOfTrailingZeros(bits), board,
+                        layout.player));
+            }
+        }
+    }
+
+    // the same as BoardAnalyser.scanOptionAreas (only a few squares per safe area, so they are tested one by one)
+    private void addOptionAreas(BoardLayout layout, int index) {
+        int safeArea = layout.safeAreas.get(index);
+        int x = Area.getX(safeArea);
+        int y = Area.getY(safeArea);
+
+        if (layout.player == Player.V) {
+            if (y + 2 < height) {
+                int oaLower = optionArea(V, x, y + 2);
+                if (oaLower != -1) {
+                    layout.optionAreas.add(oaLower);
+                    safeArea = SafeArea.addOptionAreaLower(safeArea);
+                }
+            }
+            if (y - 1 > 0) {
+                int oaHigher = optionArea(V, x, y - 1);
+                if (oaHigher != -1) {
+                    layout.optionAreas.add(oaHigher);
+                    safeArea = SafeArea.addOptionAreaHigher(safeArea);
+                }
+            }
+        } else {
+            if (x + 2 < width) {
+                int oaLower = optionArea(H, x + 2, y);
+                if (oaLower != -1) {
+                    layout.optionAreas.add(oaLower);
+                    safeArea = SafeArea.addOptionAreaLower(safeArea);
+                }
+            }
+            if (x - 1 > 0) {
+                int oaHigher = optionArea(H, x - 1, y);
+                if (oaHigher != -1) {
+                    layout.optionAreas.add(oaHigher);
+                    safeArea = SafeArea.addOptionAreaHigher(safeArea);
+                }
+            }
+        }
+        layout.safeAreas.set(index, safeArea);
+    }
+
+    // the same as OptionArea.getOptionArea, "free" are the squares which are still 'E' after the safe areas
+    private int optionArea(int p, int x, int y) {
+        // the squares before and after (x, y) in the direction of the opponent's pieces
+        int dx = p == V ? 1 : 0;
+        int dy = p == V ? 0 : 1;
+        if (!isFree(p, x, y) || (!isFree(p, x - dx, y - dy) && !isFree(p, x + dx, y + dy))) {
+            return -1;
+        }
+        int count = 1;
+        if (isOccupiedOrOutside(x - 2 * dx, y - 2 * dy) && isFree(p, x - dx, y - dy)) {
+            count++;
+        }
+        if (isOccupiedOrOutside(x + 2 * dx, y + 2 * dy) && isFree(p, x + dx, y + dy)) {
+            count++;
+        }
+        return Area.pack(x, y, count);
+    }
+
+    private boolean isFree(int p, int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height && ((empty[x] & ~marked[p][x]) & (1L << y)) != 0;
+    }
+
+    private boolean isOccupiedOrOutside(int x, int y) {
+        return x < 0 || y < 0 || x >= width || y >= height || (occupied[x] & (1L << y)) != 0;
+    }
+
+    /*
+        Vertical vulnerable areas are the free pairs in a column, again the lowest of two overlapping ones wins. They
+        are of type II if one of their squares has a marked neighbour in the columns x - 1 and x + 1 (the vulnerable
+        areas of column x + 1 are not found yet at this point of the char scan) and protected if one of their squares
+        is walled in from both sides.
+     */
+    private void findVerticalVuln() {
+        for (int x = 0; x < width; x++) {
+            long free = empty[x] & ~marked[V][x];
+            long chosen = chooseGreedy(free & (free >>> 1), 1);
+            long around = (x > 0 ? marked[V][x - 1] | vulnSquares[V][x - 1] : 0)
+                    | (x < width - 1 ? marked[V][x + 1] : 0);
+            long walled = occupiedOrBorder(x - 1) & occupiedOrBorder(x + 1);
+
+            vuln[V][x] = chosen;
+            vulnTypeTwo[V][x] = around | (around >>> 1);
+            vulnProtected[V][x] = walled | (walled >>> 1);
+            vulnSquares[V][x] = chosen | (chosen << 1);
+        }
+    }
+
+    /*
+        Horizontal vulnerable areas only block the square of the next column. The neighbours which make them type II
+        are the squares above and below, the one directly above only counts if it is a safe or protective square (the
+        same as in VulnArea.isVulnArea).
+     */
+    private void findHorizontalVuln() {
+        for (int x = 0; x < width; x++) {
+            long before = x > 0 ? vuln[H][x - 1] : 0;
+            if (x == width - 1) {
+                vuln[H][x] = 0;
+                vulnSquares[H][x] = before;
+                continue;
+            }
+            long chosen = empty[x] & ~marked[H][x] & empty[x + 1] & ~marked[H][x + 1] & ~before;
+            long typeTwo = (marked[H][x] << 1)
+                    | ((marked[H][x] | before) >>> 1)
+                    | ((marked[H][x + 1] | chosen) << 1)
+                    | (marked[H][x + 1] >>> 1);
+            long walled = (above(occupied[x]) & below(occupied[x])) | (above(occupied[x + 1]) & below(occupied[x + 1]));
+
+            vuln[H][x] = chosen;
+            vulnTypeTwo[H][x] = typeTwo;
+            vulnProtected[H][x] = walled;
+            vulnSquares[H][x] = chosen | before;
+        }
+    }
+
+    private void addVuln(BoardLayout layout) {
+        int p = layout.player.ordinal();
+        for (int x = 0; x < width; x++) {
+            for (long bits = vuln[p][x]; bits != 0; bits &= bits - 1) {
+                long bit = bits & -bits;
+                int area = VulnArea.getVulnArea(x, Long.numberOfTrailingZeros(bits));
+                boolean two = (vulnTypeTwo[p][x] & bit) != 0;
+                if (two) {
+                    layout.vulnAreasTwo.add(area);
+                } else {
+                    layout.vulnAreasOne.add(area);
+                }
+                // the vulnerable areas which contain a protected square are counted twice
+                if ((vulnProtected[p][x] & bit) != 0) {
+                    (two ? layout.vulnAreasProtectedTwo : layout.vulnAreasProtectedOne).add(area);
+                }
+            }
+        }
+    }
+
+    /*
+        Chooses the candidates greedily from the lowest bit upwards, every chosen candidate blocks the next "reach"
+        bits above it. A candidate without any other candidate in the "reach" bits below it is always chosen, so all of
+        them are chosen at once and removed together with the bits they block, until no candidate is left. This needs
+        one round per candidate of the longest chain of overlapping candidates, which is hardly ever more than two.
+     */
+    private static long chooseGreedy(long candidates, int reach) {
+        long chosen = 0;
+        while (candidates != 0) {
+            long first = candidates;
+            long blocked = 0;
+            for (int i = 1; i <= reach; i++) {
+                first &= ~(candidates << i);
+            }
+            for (int i = 0; i <= reach; i++) {
+                blocked |= first << i;
+            }
+            chosen |= first;
+            candidates &= ~blocked;
+        }
+        return chosen;
+    }
+
+    // the bits y - 1, y and y + 1 for every bit y
+    private static long spread(long bits) {
+        return bits | (bits << 1) | (bits >>> 1);
+    }
+
+    // bit y: the square (x, y) is occupied or outside of the board
+    private long occupiedOrBorder(int x) {
+        return x < 0 || x >= width ? full : occupied[x];
+    }
+
+    // bit y: the squares (x, y) and (x, y + 1) are occupied or outside of the board
+    private long wallPair(int x) {
+        return x < 0 || x >= width ? full : occupied[x] & (occupied[x] >>> 1);
+    }
+
+    // bit y: the square above (y - 1) is set in the column or outside of the board
+    private static long above(long column) {
+        return (column << 1) | 1;
+    }
+
+    // bit y: the square below (y + 1) is set in the column or outside of the board
+    private long below(long column) {
+        return (column >>> 1) | lastRow;
+    }
+}
@@ -1,32 +1,67 @@
 package ai;
 
-import java.util.Arrays;
 import java.util.Random;
 
 public final class BoardAnalyser {
-    private final Random generator;
-
     public final BoardLayout vertical;
     public final BoardLayout horizontal;
 
-    private final char[][] board;
+    private BitBoard board;
 
-    public BoardAnalyser(char[][] board, boolean noBounds) {
-        this.generator = new Random();
-        this.board = board;
+    // the board copies which are marked during the analysis, they are reused for every analysed board (only needed if
+    // the board is too high for the BitmaskAnalyser, which gives exactly the same results)
+    private final char[][] boardCloneVertical;
+    private final char[][] boardCloneHorizontal;
+    private final BitmaskAnalyser bitmaskAnalyser;
+    // picks the protective area which is split for the lower bound, seeded with the key of the analysed board
+    private final Random random = new Random();
+
+    public BoardAnalyser(BitBoard board, boolean noBounds) {
+        this(board.getWidth(), board.getHeight());
+        analyse(board, noBounds);
+    }
+
+    // creates an analyser which can be reused (via analyse) for all boards of the given size without new allocations
+    public BoardAnalyser(int width, int height) {
+        this(width, height, height <= BitmaskAnalyser.MAX_HEIGHT);
+    }
 
+    // without the bitmask, the char scan is used for any height (the tests compare both ways of analysing)
+    BoardAnalyser(int width, int height, boolean bitmask) {
         this.vertical = new BoardLayout(Player.V);
         this.horizontal = new BoardLayout(Player.H);
 
+        if (bitmask) {
+            this.bitmaskAnalyser = new BitmaskAnalyser(width, height);
+            this.boardCloneVertical = null;
+            this.boardCloneHorizontal = null;
+        } else {
+            this.bitmaskAnalyser = null;
+            this.boardCloneVertical = new char[width][height];
+            this.boardCloneHorizontal = new char[width][height];
+        }
+    }
+
+    public void analyse(BitBoard board, boolean noBounds) {
+        this.board = board;
+        vertical.reset();
+        horizontal.reset();
+
         // initialize the internal variables
         analyseBoard();
         if (!noBounds) {
-            calcUnplayable();
-            calcLowerBounds();
-            calcUpperBounds();
+            calcBounds(vertical, horizontal);
         }
     }
 
+    // takes the areas of the board from the columns which the IncrementalAnalyser keeps up to date during the search,
+    // they are the same as the ones of the char scan
+    void analyse(BitBoard board, IncrementalAnalyser columns) {
+        this.board = board;
+        columns.assemble(board, vertical, horizontal);
+        calcBounds(vertical, horizontal);
+    }
+
     /*
      We try to play one of four openings for domineering:
      ------------------
@@ -41,6 +76,10 @@ public final class BoardAnalyser {
      */
     // to be able to play an opening without the performance loss of analyzing the entire board, this is a static method
     public static Coordinate trySimpleOpening(char[][] board, Player player) {
+        // on very small boards, the corners are the whole board
+        if (board.length < 4 || board[0].length < 4) {
+            return null;
+        }
         // Horizontal
         if (player == Player.H) {
             if (board[board.length - 1][board[0].length - 2] == 'E'
@@ -65,14 +104,16 @@ public final class BoardAnalyser {
 
     // scan board for special "areas" which contain all playable moves
     public void analyseBoard() {
-        // copy board
-        char[][] boardCloneVertical = new char[board.length][];
-        char[][] boardCloneHorizontal = new char[board.length][];
-
-        for (int i = 0; i < board.length; i++) {
-            boardCloneVertical[i] = Arrays.copyOf(board[i], board[i].length);
-            boardCloneHorizontal[i] = Arrays.copyOf(board[i], board[i].length);
+        if (bitmaskAnalyser != null) {
+            bitmaskAnalyser.analyse(board, vertical, horizontal);
+            return;
         }
+        int width = board.getWidth();
+        int height = board.getHeight();
+
+        // copy board
+        board.fill(boardCloneVertical);
+        board.fill(boardCloneHorizontal);
 
         /* 
         Go through board and scan for "safe areas" and "protective areas":
@@ -84,186 +125,217 @@ public final class BoardAnalyser {
         "protectSpot". This move converts a protective area to a safe area. No two protective areas are allowed to be
         adjacent to each other. Otherwise the other player could destroy two protective areas by placing one tile.
         */
-        for (int x = 0; x < board.length; x++) {
-            for (int y = 0; y < board[0].length; y++) {
-                if (y < board[0].length - 1 && SafeArea.isSafeArea(boardCloneVertical, Player.V, x, y)) {
-                    vertical.safeAreas.add(new SafeArea(x, y, x, y + 1));
+        for (int x = 0; x < width; x++) {
+            scanSafeAndProtectiveAreas(board, boardCloneVertical, x, vertical, vertical.protectiveAreas);
+            scanSafeAndProtectiveAreas(board, boardCloneHorizontal, x, horizontal, horizontal.protectiveAreas);
+        }
 
-                    // mark the "used spaces" in the board clone so they aren't reused for other areas
-                    boardCloneVertical[x][y] = 'S';
-                    boardCloneVertical[x][y + 1] = 'S';
-                }
-                if (x < board.length - 1 && SafeArea.isSafeArea(boardCloneHorizontal, Player.H, x, y)) {
-                    horizontal.safeAreas.add(new SafeArea(x, y, x + 1, y));
+        // scan all safe areas for the so called "option areas". This means player could place the piece into one
+        // square contained in the safe area and one square which is outside. This mustn't reduce the number of safe
+        // moves or destroy another protective area. It is really useful to reduce the opponent's possible moves.
+        for (int i = 0; i < vertical.safeAreas.size(); i++) {
+            scanOptionAreas(boardCloneVertical, i, vertical);
+        }
+        for (int i = 0; i < horizontal.safeAreas.size(); i++) {
+            scanOptionAreas(boardCloneHorizontal, i, horizontal);
+        }
+
+        // all places which are left and aren't single 1x1 fields are vulnerable areas
+        for (int x = 0; x < width; x++) {
+            scanVulnAreas(boardCloneVertical, x, vertical);
+            scanVulnAreas(boardCloneHorizontal, x, horizontal);
+        }
+
+        // the last thing to do is to sum up all squares which were available from the start and also which could be
+        // played by either player.
+        vertical.startAvailableSquares = width * height - board.occupiedCount();
+        horizontal.startAvailableSquares = vertical.startAvailableSquares;
+        for (int x = 0; x < width; x++) {
+            horizontal.unavailableSquares += countUnavailableSquares(board, boardCloneVertical, x, Player.H);
+            vertical.unavailableSquares += countUnavailableSquares(board, boardCloneHorizontal, x, Player.V);
+        }
+    }
+
+    /*
+        The single steps of the analysis are split up into methods which only look at one column (x) of the board. Every
+        step only reads the squares of the neighbouring columns, which is also used by the IncrementalAnalyser to only
+        repeat the steps for the columns around a newly placed piece.
+     */
+
+    // finds the safe and protective areas with the upper left corner in column x, "added" are the protective areas
+    // which were found before and must not be adjacent to the new ones
+    static void scanSafeAndProtectiveAreas(BitBoard board, char[][] clone, int x, BoardLayout layout,
+                                           AreaList added) {
+        int width = clone.length;
+        int height = clone[0].length;
+
+        for (int y = 0; y < height; y++) {
+            if (layout.player == Player.V) {
+                if (y < height - 1 && SafeArea.isSafeArea(clone, Player.V, x, y)) {
+                    layout.safeAreas.add(SafeArea.pack(x, y));
 
                     // mark the "used spaces" in the board clone so they aren't reused for other areas
-                    boardCloneHorizontal[x][y] = 'S';
-                    boardCloneHorizontal[x + 1][y] = 'S';
+                    clone[x][y] = 'S';
+                    clone[x][y + 1] = 'S';
                 }
-
-                if (y < board[0].length - 1
-                        && ProtectiveArea
-                        .isProtectiveArea(boardCloneVertical, Player.V, x, y, vertical.protectiveAreas)) {
-                    vertical.protectiveAreas.add(new ProtectiveArea(x, y, x + 1, y + 1, board, Player.V));
+                if (y < height - 1 && ProtectiveArea.isProtectiveArea(clone, Player.V, x, y, added)) {
+                    addProtectiveArea(ProtectiveArea.pack(x, y, board, Player.V), layout, added);
 
                     // mark the 2x2 protective area on the board copy
-                    boardCloneVertical[x][y] = 'P';
-                    boardCloneVertical[x + 1][y] = 'P';
-                    boardCloneVertical[x][y + 1] = 'P';
-                    boardCloneVertical[x + 1][y + 1] = 'P';
+                    markProtectiveArea(clone, x, y);
                 }
+            } else {
+                if (x < width - 1 && SafeArea.isSafeArea(clone, Player.H, x, y)) {
+                    layout.safeAreas.add(SafeArea.pack(x, y));
 
-                if (x < board.length - 1
-                        && ProtectiveArea
-                        .isProtectiveArea(boardCloneHorizontal, Player.H, x, y, horizontal.protectiveAreas)) {
-                    horizontal.protectiveAreas.add(new ProtectiveArea(x, y, x + 1, y + 1, board, Player.H));
+                    // mark the "used spaces" in the board clone so they aren't reused for other areas
+                    clone[x][y] = 'S';
+                    clone[x + 1][y] = 'S';
+                }
+                if (x < width - 1 && ProtectiveArea.isProtectiveArea(clone, Player.H, x, y, added)) {
+                    addProtectiveArea(ProtectiveArea.pack(x, y, board, Player.H), layout, added);
 
                     // mark the 2x2 protective area on the board copy
-                    boardCloneHorizontal[x][y] = 'P';
-                    boardCloneHorizontal[x + 1][y] = 'P';
-                    boardCloneHorizontal[x][y + 1] = 'P';
-                    boardCloneHorizontal[x + 1][y + 1] = 'P';
+                    markProtectiveArea(clone, x, y);
                 }
             }
         }
+    }
 
-        // scan all safe areas for the so called "option areas". This means player could place the piece into one
-        // square contained in the safe area and one square which is outside. This mustn't reduce the number of safe
-        // moves or destroy another protective area. It is really useful to reduce the opponent's possible moves.
-        for (SafeArea safeArea : vertical.safeAreas) {
-            int x = safeArea.getCornerUL().getX();
-            int y = safeArea.getCornerUL().getY();
-
-            if (y + 2 < board[0].length) {
-                OptionArea oaLower = OptionArea
-                        .getOptionArea(boardCloneVertical, Player.V, x, y + 2);
-                if (oaLower != null) {
-                    vertical.optionAreas.add(oaLower);
-                    safeArea.addOptionAreaLower(oaLower);
+    private static void addProtectiveArea(int area, BoardLayout layout, AreaList added) {
+        layout.protectiveAreas.add(area);
+        if (added != layout.protectiveAreas) {
+            added.add(area);
+        }
+    }
+
+    private static void markProtectiveArea(char[][] clone, int x, int y) {
+        clone[x][y] = 'P';
+        clone[x + 1][y] = 'P';
+        clone[x][y + 1] = 'P';
+        clone[x + 1][y + 1] = 'P';
+    }
+
+    // finds the option areas above and below the safe area with the given index
+    static void scanOptionAreas(char[][] clone, int index, BoardLayout layout) {
+        int safeArea = layout.safeAreas.get(index);
+        int x = Area.getX(safeArea);
+        int y = Area.getY(safeArea);
+
+        if (layout.player == Player.V) {
+            if (y + 2 < clone[0].length) {
+                int oaLower = OptionArea.getOptionArea(clone, Player.V, x, y + 2);
+                if (oaLower != -1) {
+                    layout.optionAreas.add(oaLower);
+                    safeArea = SafeArea.addOptionAreaLower(safeArea);
                 }
             }
             if (y - 1 > 0) {
-                OptionArea oaHigher = OptionArea
-                        .getOptionArea(boardCloneVertical, Player.V, x, y - 1);
-                if (oaHigher != null) {
-                    vertical.optionAreas.add(oaHigher);
-                    safeArea.addOptionAreaHigher(oaHigher);
+                int oaHigher = OptionArea.getOptionArea(clone, Player.V, x, y - 1);
+                if (oaHigher != -1) {
+                    layout.optionAreas.add(oaHigher);
+                    safeArea = SafeArea.addOptionAreaHigher(safeArea);
                 }
             }
-        }
-
-        for (SafeArea safeArea : horizontal.safeAreas) {
-            int x = safeArea.getCornerUL().getX();
-            int y = safeArea.getCornerUL().getY();
-
-            if (x + 2 < board.length) {
-                OptionArea oaLower = OptionArea
-                        .getOptionArea(boardCloneHorizontal, Player.H, x + 2, y);
-                if (oaLower != null) {
-                    horizontal.optionAreas.add(oaLower);
-                    safeArea.addOptionAreaLower(oaLower);
+        } else {
+            if (x + 2 < clone.length) {
+                int oaLower = OptionArea.getOptionArea(clone, Player.H, x + 2, y);
+                if (oaLower != -1) {
+                    layout.optionAreas.add(oaLower);
+                    safeArea = SafeArea.addOptionAreaLower(safeArea);
                 }
             }
             if (x - 1 > 0) {
-                OptionArea oaHigher = OptionArea
-                        .getOptionArea(boardCloneHorizontal, Player.H, x - 1, y);
-                if (oaHigher != null) {
-                    horizontal.optionAreas.add(oaHigher);
-                    safeArea.addOptionAreaHigher(oaHigher);
+                int oaHigher = OptionArea.getOptionArea(clone, Player.H, x - 1, y);
+                if (oaHigher != -1) {
+                    layout.optionAreas.add(oaHigher);
+                    safeArea = SafeArea.addOptionAreaHigher(safeArea);
                 }
             }
         }
+        layout.safeAreas.set(index, safeArea);
+    }
+
+    // finds the vulnerable areas with the upper left corner in column x
+    static void scanVulnAreas(char[][] clone, int x, BoardLayout layout) {
+        Player player = layout.player;
+        int width = clone.length;
+        int height = clone[0].length;
 
         // used for temporary storage for the vulnerable area type
         int type;
 
-        // all places which are left and aren't single 1x1 fields are vulnerable areas
-        for (int x = 0; x < board.length; x++) {
-            for (int y = 0; y < board[0].length; y++) {
-                if (y < board[0].length - 1 && (type = VulnArea.isVulnArea(boardCloneVertical, x, y, Player.V)) != 0) {
-                    if (type == 1) {
-                        vertical.vulnAreasOne.add(VulnArea.getVulnArea(x, y, Player.V));
-                        boardCloneVertical[x][y] = 'D';
-                        boardCloneVertical[x][y + 1] = 'D';
-                    } else if (type == 2) {
-                        vertical.vulnAreasTwo.add(VulnArea.getVulnArea(x, y, Player.V));
-                        boardCloneVertical[x][y] = 'D';
-                        boardCloneVertical[x][y + 1] = 'D';
-                    } else if (type == 3) {
-                        // the vulnerable areas which contain a protected square are counted twice
-                        vertical.vulnAreasOne.add(VulnArea.getVulnArea(x, y, Player.V));
-                        vertical.vulnAreasProtectedOne.add(VulnArea.getVulnArea(x, y, Player.V));
-                        boardCloneVertical[x][y] = 'D';
-                        boardCloneVertical[x][y + 1] = 'D';
-                    } else if (type == 4) {
-                        vertical.vulnAreasTwo.add(VulnArea.getVulnArea(x, y, Player.V));
-                        vertical.vulnAreasProtectedTwo.add(VulnArea.getVulnArea(x, y, Player.V));
-                        boardCloneVertical[x][y] = 'D';
-                        boardCloneVertical[x][y + 1] = 'D';
-                    }
+        for (int y = 0; y < height; y++) {
+            if ((player == Player.V ? y < height - 1 : x < width - 1)
+                    && (type = VulnArea.isVulnArea(clone, x, y, player)) != 0) {
+                if (type == 1) {
+                    layout.vulnAreasOne.add(VulnArea.getVulnArea(x, y));
+                } else if (type == 2) {
+                    layout.vulnAreasTwo.add(VulnArea.getVulnArea(x, y));
+                } else if (type == 3) {
+                    // the vulnerable areas which contain a protected square are counted twice
+                    layout.vulnAreasOne.add(VulnArea.getVulnArea(x, y));
+                    layout.vulnAreasProtectedOne.add(VulnArea.getVulnArea(x, y));
+                } else if (type == 4) {
+                    layout.vulnAreasTwo.add(VulnArea.getVulnArea(x, y));
+                    layout.vulnAreasProtectedTwo.add(VulnArea.getVulnArea(x, y));
                 }
-
-                if (x < board.length - 1
-                        && (type = VulnArea.isVulnArea(boardCloneHorizontal, x, y, Player.H)) != 0) {
-                    if (type == 1) {
-                        horizontal.vulnAreasOne.add(VulnArea.getVulnArea(x, y, Player.H));
-                        boardCloneHorizontal[x][y] = 'D';
-                        boardCloneHorizontal[x + 1][y] = 'D';
-                    } else if (type == 2) {
-                        horizontal.vulnAreasTwo.add(VulnArea.getVulnArea(x, y, Player.H));
-                        boardCloneHorizontal[x][y] = 'D';
-                        boardCloneHorizontal[x + 1][y] = 'D';
-                    } else if (type == 3) {
-                        // the vulnerable areas which contain a protected square are counted twice
-                        horizontal.vulnAreasOne.add(VulnArea.getVulnArea(x, y, Player.H));
-                        horizontal.vulnAreasProtectedOne.add(VulnArea.getVulnArea(x, y, Player.H));
-                        boardCloneHorizontal[x][y] = 'D';
-                        boardCloneHorizontal[x + 1][y] = 'D';
-                    } else if (type == 4) {
-                        horizontal.vulnAreasTwo.add(VulnArea.getVulnArea(x, y, Player.H));
-                        horizontal.vulnAreasProtectedTwo.add(VulnArea.getVulnArea(x, y, Player.H));
-                        boardCloneHorizontal[x][y] = 'D';
-                        boardCloneHorizontal[x + 1][y] = 'D';
-                    }
+                clone[x][y] = 'D';
+                if (player == Player.V) {
+                    clone[x][y + 1] = 'D';
+                } else {
+                    clone[x + 1][y] = 'D';
                 }
             }
         }
+    }
 
-        // the last thing to do is to sum up all squares which were available from the start and also which could be
-        // played by either player.
-        for (int x = 0; x < board.length; x++) {
-            for (int y = 0; y < board[0].length; y++) {
-                if (board[x][y] == 'E') {
-                    horizontal.startAvailableSquares++;
-                    vertical.startAvailableSquares++;
-                }
-
-                if ((boardCloneVertical[x][y] == 'E')
-                        && ((x <= 0 || board[x - 1][y] != 'E') && (x + 1 >= board.length || board[x + 1][y] != 'E'))) {
-                    horizontal.unavailableSquares++;
-                }
+    // counts the squares in column x which the given player can't use, based on the analysed board of the opponent
+    static int countUnavailableSquares(BitBoard board, char[][] opponentClone, int x, Player player) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        int count = 0;
 
-                if ((boardCloneHorizontal[x][y] == 'E')
-                        && ((y <= 0 || board[x][y - 1] != 'E') && (y + 1 >= board[0].length
-                        || board[x][y + 1] != 'E'))) {
-                    vertical.unavailableSquares++;
-                }
+        for (int y = 0; y < height; y++) {
+            if (opponentClone[x][y] != 'E') {
+                continue;
+            }
+            if (player == Player.H
+                    && ((x <= 0 || !board.isEmpty(x - 1, y)) && (x + 1 >= width || !board.isEmpty(x + 1, y)))) {
+                count++;
+            }
+            if (player == Player.V
+                    && ((y <= 0 || !board.isEmpty(x, y - 1)) && (y + 1 >= height || !board.isEmpty(x, y + 1)))) {
+                count++;
             }
         }
+        return count;
+    }
+
+    // calculates the bounds for both players, the lists of the layouts have to contain the analysed areas
+    private void calcBounds(BoardLayout vertical, BoardLayout horizontal) {
+        calcUnplayable(vertical, horizontal);
+        calcLowerBounds(vertical, horizontal);
+        calcUpperBounds(vertical, horizontal);
     }
 
     // this lower bound denotes the minimum number of moves the current player is able to play
     // the main strategy and calculation is based on Nathan Bullock's master thesis (theorem 3.5.1)
-    private void calcLowerBounds() {
+    // an odd protective area is split into two vulnerable areas. Like in the thesis, any of them may be taken, but the
+    // split areas are used by the move generation. So the random choice is seeded with the key of the board: the same
+    // board is always analysed the same way, and the searches (e.g. of the FactorTuner) can be repeated
+    private void calcLowerBounds(BoardLayout vertical, BoardLayout horizontal) {
+        if (vertical.numProtectiveAreas() % 2 != 0 || horizontal.numProtectiveAreas() % 2 != 0) {
+            random.setSeed(board.getKey());
+        }
         if (vertical.numProtectiveAreas() % 2 != 0) {
-            ProtectiveArea convertibleArea =
-                    vertical.protectiveAreas.get(generator.nextInt(vertical.numProtectiveAreas()));
-            vertical.protectiveAreas.remove(convertibleArea);
+            int index = random.nextInt(vertical.numProtectiveAreas());
+            int convertibleArea = vertical.protectiveAreas.get(index);
+            vertical.protectiveAreas.removeAt(index);
 
-            VulnArea[] newVulnAreas = convertibleArea.splitIntoVulnTwo(Player.V);
-
-            vertical.vulnAreasTwo.add(newVulnAreas[0]);
-            vertical.vulnAreasTwo.add(newVulnAreas[1]);
+            // split the protective area into two vulnerable areas
+            vertical.vulnAreasTwo.add(ProtectiveArea.getProtectSpot(convertibleArea, Player.V));
+            vertical.vulnAreasTwo.add(ProtectiveArea.getOtherHalf(convertibleArea, Player.V));
         }
 
         int addMove = (vertical.numVulnAreasTwo() % 3 != 0 && vertical.numVulnAreasOne() % 2 != 0) ? 1 : 0;
@@ -276,14 +348,13 @@ public final class BoardAnalyser {
         );
 
         if (horizontal.numProtectiveAreas() % 2 != 0) {
-            ProtectiveArea convertibleArea =
-                    horizontal.protectiveAreas.get(generator.nextInt(horizontal.numProtectiveAreas()));
-            horizontal.protectiveAreas.remove(convertibleArea);
-
-            VulnArea[] newVulnAreas = convertibleArea.splitIntoVulnTwo(Player.H);
+            int index = random.nextInt(horizontal.numProtectiveAreas());
+            int convertibleArea = horizontal.protectiveAreas.get(index);
+            horizontal.protectiveAreas.removeAt(index);
 
-            horizontal.vulnAreasTwo.add(newVulnAreas[0]);
-            horizontal.vulnAreasTwo.add(newVulnAreas[1]);
+            // split the protective area into two vulnerable areas
+            horizontal.vulnAreasTwo.add(ProtectiveArea.getProtectSpot(convertibleArea, Player.H));
+            horizontal.vulnAreasTwo.add(ProtectiveArea.getOtherHalf(convertibleArea, Player.H));
         }
 
         addMove = (horizontal.numVulnAreasTwo() % 3 != 0 && horizontal.numVulnAreasOne() % 2 != 0) ? 1 : 0;
@@ -297,7 +368,7 @@ public final class BoardAnalyser {
     }
 
     // get the upper bound of moves which could be played by the corresponding player.
-    private void calcUpperBounds() {
+    private static void calcUpperBounds(BoardLayout vertical, BoardLayout horizontal) {
         // first, calculate the upper bound for vertical
         // number of playable squares after the opponent has played his lower bound of moves
         int squaresCurr = (vertical.startAvailableSquares - 2 * horizontal.lowerBound);
@@ -309,7 +380,7 @@ public final class BoardAnalyser {
         horizontal.upperBound = (squaresCurr - horizontal.unavailableSquares - horizontal.unplayableSquares) / 2;
     }
 
-    private void calcUnplayable() {
+    private static void calcUnplayable(BoardLayout vertical, BoardLayout horizontal) {
         // first, calculate the unplayable squares for vertical (use the data from horizontal player)
         BoardLayout current = vertical;
         BoardLayout opponent = horizontal;
@@ -319,8 +390,8 @@ public final class BoardAnalyser {
             int o2 = 0;
             int o3 = 0;
 
-            for (OptionArea o : opponent.optionAreas) {
-                switch (o.getWeight()) {
+            for (int o = 0; o < opponent.optionAreas.size(); o++) {
+                switch (OptionArea.getWeight(opponent.optionAreas.get(o))) {
                     case 1 -> o1++;
                     case 2 -> o2++;
                     case 3 -> o3++;
@@ -1,20 +1,19 @@
 package ai;
 
-import java.util.ArrayList;
-
 /*
     A BoardLayout object contains all the calculated board areas for either the vertical or the horizontal player. It
-     is only used for storing these objects and values.
+     is only used for storing these objects and values. The areas are stored as packed ints (see Area) and the lists
+     are reset instead of reallocated, so a BoardLayout can be reused for any number of analyses.
  */
 
 public class BoardLayout {
-    public final ArrayList<ProtectiveArea> protectiveAreas;
-    public final ArrayList<SafeArea> safeAreas;
-    public final ArrayList<VulnArea> vulnAreasOne;
-    public final ArrayList<VulnArea> vulnAreasTwo;
-    public final ArrayList<VulnArea> vulnAreasProtectedOne;
-    public final ArrayList<VulnArea> vulnAreasProtectedTwo;
-    public final ArrayList<OptionArea> optionAreas;
+    public final AreaList protectiveAreas;
+    public final AreaList safeAreas;
+    public final AreaList vulnAreasOne;
+    public final AreaList vulnAreasTwo;
+    public final AreaList vulnAreasProtectedOne;
+    public final AreaList vulnAreasProtectedTwo;
+    public final AreaList optionAreas;
 
     public final Player player;
 
@@ -27,13 +26,13 @@ public class BoardLayout {
 
     public BoardLayout(Player player) {
         this.player = player;
-        this.protectiveAreas = new ArrayList<>(20);
-        this.safeAreas = new ArrayList<>(15);
-        this.vulnAreasTwo = new ArrayList<>(50);
-        this.vulnAreasOne = new ArrayList<>(15);
-        this.vulnAreasProtectedTwo = new ArrayList<>(10);
-        this.vulnAreasProtectedOne = new ArrayList<>(10);
-        this.optionAreas = new ArrayList<>(15);
+        this.protectiveAreas = new AreaList(20);
+        this.safeAreas = new AreaList(15);
+        this.vulnAreasTwo = new AreaList(50);
+        this.vulnAreasOne = new AreaList(15);
+        this.vulnAreasProtectedTwo = new AreaList(10);
+        this.vulnAreasProtectedOne = new AreaList(10);
+        this.optionAreas = new AreaList(15);
 
         this.lowerBound = Integer.MIN_VALUE;
         this.upperBound = Integer.MIN_VALUE;
@@ -43,6 +42,27 @@ public class BoardLayout {
         this.startAvailableSquares = 0;
     }
 
+    // empties all lists and sets the values back to the initial ones, so the object can be reused
+    public void reset() {
+        clearAreas();
+        this.lowerBound = Integer.MIN_VALUE;
+        this.upperBound = Integer.MIN_VALUE;
+        this.unplayableSquares = Integer.MIN_VALUE;
+
+        this.unavailableSquares = 0;
+        this.startAvailableSquares = 0;
+    }
+
+    public void clearAreas() {
+        protectiveAreas.clear();
+        safeAreas.clear();
+        vulnAreasOne.clear();
+        vulnAreasTwo.clear();
+        vulnAreasProtectedOne.clear();
+        vulnAreasProtectedTwo.clear();
+        optionAreas.clear();
+    }
+
     public int numProtectiveAreas() {
         return protectiveAreas.size();
     }
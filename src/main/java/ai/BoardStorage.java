@@ -1,22 +1,308 @@
 package ai;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
-import java.util.HashMap;
 
-// simple wrapper for java hashmap structure
+/*
+    Fixed-size transposition table for the calculated scores. Instead of one map entry (and several objects) per board,
+    all entries are packed into a single long array which is allocated once with the requested size. The memory usage
+    is therefore completely predictable and no garbage is created while the search is running.
+
+    Every entry consists of two longs:
+        1. the full 64-bit Zobrist key of the board XOR the packed data (every probe compares the complete key)
+        2. the packed data:  score (32 bit) | best move (16 bit) | depth (8 bit) | bound type (2 bit) | generation (6 bit)
+
+    Two entries form a bucket. The first slot is "depth-preferred": it keeps the result of the deepest search until
+    a search of at least the same depth (or a newer search) replaces it. The second slot is "always-replace" and takes
+    every entry which doesn't make it into the first slot, so recent results are never lost completely. Entries which
+    were written during an older search (another generation) can always be replaced. A board is only ever stored in
+    one of the slots: a new result for the board in the first slot replaces it there.
+
+    The parallel search uses one storage from several threads without any locking. Two threads writing the same
+    entry at once can leave the key of one and the data of the other in the table. Because the key is stored XOR the
+    data, such a torn entry simply doesn't match any key anymore and is treated like a missing one (lockless hashing).
+
+    The table can be saved to a file and loaded again in a later run (the Zobrist keys are the same in every run), so a
+    restarted engine doesn't start with an empty table. Only the used entries are written:
+
+        header:  magic (int) | entry count (int)
+        entries: key (long) | data (long)
+
+    Loading inserts the entries like put does, so the table doesn't need the same size as the saved one, and every
+    entry is checked against its full key when it is probed, just like any other entry. The scores depend on the
+    factors of the evaluation, so a file should only be loaded by an engine which uses the same factors.
+ */
 public class BoardStorage {
-    private final HashMap<Integer, StateInfo> scoreStorage = new HashMap<>();
+    public static final int DEFAULT_SIZE_MB = 64;
+
+    private static final int LONGS_PER_ENTRY = 2;
+    private static final int LONGS_PER_BUCKET = 2 * LONGS_PER_ENTRY;
+
+    private static final int MOVE_SHIFT = 32;
+    private static final int DEPTH_SHIFT = 48;
+    private static final int TYPE_SHIFT = 56;
+    private static final int GENERATION_SHIFT = 58;
+    private static final int GENERATION_MASK = 0x3F;
+
+    private static final int FILE_MAGIC = 0x444F4D54;
+    private static final int FILE_HEADER_BYTES = 8;
+    private static final int FILE_ENTRY_BYTES = 16;
+
+    // number of entries which are looked at to estimate the usage of the table
+    private static final int USAGE_SAMPLE_ENTRIES = 1 << 12;
+
+    private final long[] table;
+    private final int bucketMask;
+    private final int sizeInMegabytes;
+
+    private int generation;
+
+    public BoardStorage() {
+        this(DEFAULT_SIZE_MB);
+    }
+
+    public BoardStorage(int sizeInMegabytes) {
+        if (sizeInMegabytes <= 0) {
+            throw new IllegalArgumentException("The storage needs at least one megabyte, got " + sizeInMegabytes);
+        }
+        // the number of buckets is rounded down to a power of two, so the bucket index is just a masked key
+        long buckets = Long.highestOneBit(((long) sizeInMegabytes << 20) / (LONGS_PER_BUCKET * Long.BYTES));
+        buckets = Math.min(buckets, Integer.highestOneBit(Integer.MAX_VALUE / LONGS_PER_BUCKET));
+
+        this.table = new long[(int) buckets * LONGS_PER_BUCKET];
+        this.bucketMask = (int) buckets - 1;
+        this.sizeInMegabytes = sizeInMegabytes;
+    }
+
+    // should be called once before each new search, so entries of older searches can be replaced first
+    public void newSearch() {
+        generation = (generation + 1) & GENERATION_MASK;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        generation = 0;
+    }
+
+    public void put(long key, StateInfo info) {
+        store(key, pack(info));
+    }
+
+    private void store(long key, long data) {
+        int bucket = bucketIndex(key);
+        long depthData = table[bucket + 1];
+        long depthKey = table[bucket] ^ depthData;
+
+        // the depth-preferred slot is only overwritten by searches which are at least as deep, by newer searches or by
+        // a new result for the same board (the older one would otherwise always be found first by get)
+        if (depthData == 0 || depthKey == key || generation(depthData) != generation
+                || depth(data) >= depth(depthData)) {
+            if (depthData != 0 && depthKey != key) {
+                // the replaced entry is still valuable, so it gets moved to the always-replace slot
+                table[bucket + 2] = depthKey ^ depthData;
+                table[bucket + 3] = depthData;
+            } else if (table[bucket + 3] != 0 && (table[bucket + 2] ^ table[bucket + 3]) == key) {
+                // an older result for the same board in the always-replace slot would only waste it
+                table[bucket + 2] = 0;
+                table[bucket + 3] = 0;
+            }
+            table[bucket] = key ^ data;
+            table[bucket + 1] = data;
+        } else {
+            table[bucket + 2] = key ^ data;
+            table[bucket + 3] = data;
+        }
+    }
+
+    // loads the entry for the given key into "info", returns false if the key is not stored
+    public boolean get(long key, StateInfo info) {
+        int bucket = bucketIndex(key);
+        for (int slot = bucket; slot < bucket + LONGS_PER_BUCKET; slot += LONGS_PER_ENTRY) {
+            long data = table[slot + 1];
+            if (data != 0 && (table[slot] ^ data) == key) {
+                // entries which are still used survive the aging
+                if (generation(data) != generation) {
+                    data = (data & ~((long) GENERATION_MASK << GENERATION_SHIFT))
+                            | ((long) generation << GENERATION_SHIFT);
+                    table[slot] = key ^ data;
+                    table[slot + 1] = data;
+                }
+                unpack(data, info);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+        Writes all used entries to the file. This can be done while a search is running, a torn entry is written with a
+        key which never matches and is therefore just a wasted entry in the file.
+     */
+    public void save(Path file) throws IOException {
+        int count = 0;
+        for (int slot = 0; slot < table.length; slot += LONGS_PER_ENTRY) {
+            if (table[slot + 1] != 0) {
+                count++;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            buffer.putInt(FILE_MAGIC).putInt(count);
+            int written = 0;
+            for (int slot = 0; slot < table.length && written < count; slot += LONGS_PER_ENTRY) {
+                long data = table[slot + 1];
+                if (data == 0) {
+                    continue;
+                }
+                if (buffer.remaining() < FILE_ENTRY_BYTES) {
+                    writeFully(channel, buffer);
+                }
+                buffer.putLong(table[slot] ^ data).putLong(data);
+                written++;
+            }
+            writeFully(channel, buffer);
+            // entries which were removed while saving (clear) are missing, the header must match the written entries
+            if (written < count) {
+                channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, written), Integer.BYTES);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
 
-    public void put(char[][] board, StateInfo info) {
-        scoreStorage.put(Arrays.hashCode(flatten(board)), info);
+    // adds the entries of a file written by save, entries with the same bucket replace each other like with put
+    public void load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            readFully(channel, buffer, FILE_HEADER_BYTES);
+            int magic = buffer.getInt();
+            int count = buffer.getInt();
+            if (magic != FILE_MAGIC || count < 0
+                    || channel.size() != FILE_HEADER_BYTES + (long) count * FILE_ENTRY_BYTES) {
+                throw new IOException("not a saved transposition table: " + file);
+            }
+            for (int i = 0; i < count; i++) {
+                if (!buffer.hasRemaining()) {
+                    readFully(channel, buffer, (int) Math.min(buffer.capacity(), (long) (count - i) * FILE_ENTRY_BYTES));
+                }
+                long key = buffer.getLong();
+                long data = buffer.getLong();
+                if (data != 0) {
+                    store(key, data);
+                }
+            }
+        }
+    }
+
+    // reads the next bytes of the file into the (empty) buffer
+    private static void readFully(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        buffer.clear().limit(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+        buffer.flip();
     }
 
-    // get the score for the given board, returns null if no score is found
-    public StateInfo get(char[][] board) {
-        return scoreStorage.get(Arrays.hashCode(flatten(board)));
+    /*
+        Saves the table to the file when the JVM exits (normally or because of a signal like SIGTERM). The JVM is
+        already shutting down at that point, so a failure is only reported and doesn't stop the other shutdown hooks.
+     */
+    public void saveOnShutdown(Path file) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                save(file);
+            } catch (IOException e) {
+                System.err.println("Could not save the transposition table to " + file + ": " + e);
+            }
+        }));
     }
 
-    // small storage class for the values which should be stored for each registered board
+    // the share of used entries, estimated from the first entries of the table (the keys are spread evenly over it)
+    public double usage() {
+        return sampleUsage(false);
+    }
+
+    // the share of entries which were written or read since the last newSearch, estimated like usage()
+    public double currentUsage() {
+        return sampleUsage(true);
+    }
+
+    private double sampleUsage(boolean currentOnly) {
+        int entries = Math.min(USAGE_SAMPLE_ENTRIES, capacity());
+        int used = 0;
+        for (int slot = 0; slot < entries * LONGS_PER_ENTRY; slot += LONGS_PER_ENTRY) {
+            long data = table[slot + 1];
+            if (data != 0 && (!currentOnly || generation(data) == generation)) {
+                used++;
+            }
+        }
+        return (double) used / entries;
+    }
+
+    // the number of entries the storage can hold at once
+    public int capacity() {
+        return table.length / LONGS_PER_ENTRY;
+    }
+
+    public int getSizeInMegabytes() {
+        return sizeInMegabytes;
+    }
+
+    // the index of the first long of the bucket, the lower key bits are used because the upper ones are compared anyway
+    private int bucketIndex(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * LONGS_PER_BUCKET;
+    }
+
+    private long pack(StateInfo info) {
+        long type = switch (info.type) {
+            case '=' -> 1;
+            case '+' -> 2;
+            default -> 3;
+        };
+        return (Float.floatToRawIntBits(info.score) & 0xFFFFFFFFL)
+                | ((long) ((info.move + 1) & 0xFFFF) << MOVE_SHIFT)
+                | ((long) Math.max(0, Math.min(info.depth, 0xFF)) << DEPTH_SHIFT)
+                | (type << TYPE_SHIFT)
+                | ((long) generation << GENERATION_SHIFT);
+    }
+
+    private static void unpack(long data, StateInfo info) {
+        info.score = Float.intBitsToFloat((int) data);
+        info.move = (int) ((data >>> MOVE_SHIFT) & 0xFFFF) - 1;
+        info.depth = depth(data);
+        info.type = switch ((int) (data >>> TYPE_SHIFT) & 0x3) {
+            case 1 -> '=';
+            case 2 -> '+';
+            default -> '-';
+        };
+    }
+
+    private static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+
+    /*
+        Small storage class for the values which should be stored for each registered board. The objects are only used
+        to hand values to and from the storage, the storage itself keeps the packed values only. A single object can
+        therefore be reused for every probe.
+     */
     public static class StateInfo {
         // the calculated score
         public float score;
@@ -24,14 +310,7 @@ public class BoardStorage {
         public char type;
         // at which depth was the score determined?
         public int depth;
-    }
-
-    // convert 2d-array to 1d
-    private char[] flatten(char[][] board) {
-        char[] output = new char[board.length * board[0].length];
-        for (int x = 0; x < board.length; x++) {
-            System.arraycopy(board[x], 0, output, x * board[0].length, board[0].length);
-        }
-        return output;
+        // the packed coordinate (see Coordinate.pack) of the best move found for the board or -1 if there is none
+        public int move = -1;
     }
 }
@@ -11,6 +11,31 @@ public class Coordinate {
         this.y = y;
     }
 
+    /*
+        The search doesn't create Coordinate objects for its moves, it uses coordinates packed into a single int instead:
+        the lower 8 bits contain x and the next 8 bits contain y. The remaining upper bits are always zero, so they
+        can be used by the areas to store additional information (see Area).
+     */
+    public static int pack(int x, int y) {
+        return x | (y << 8);
+    }
+
+    public static int unpackX(int packed) {
+        return packed & 0xFF;
+    }
+
+    public static int unpackY(int packed) {
+        return (packed >>> 8) & 0xFF;
+    }
+
+    public static Coordinate fromPacked(int packed) {
+        return new Coordinate(unpackX(packed), unpackY(packed));
+    }
+
+    public int pack() {
+        return pack(x, y);
+    }
+
     public int getX() {
         return x;
     }
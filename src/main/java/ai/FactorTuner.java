@@ -0,0 +1,225 @@
+package ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+    Evolutionary tuning of the factors of HardMinMax.scoreSituation: a population of factor sets plays games against
+    each other, the better half survives and the other half is replaced by mutated crossovers of the survivors.
+
+    Every generation, each member plays pairs of games (one with each color, both with the same random opening)
+    against randomly chosen other members. All games of a generation run in parallel. The engines search with a fixed
+    depth limit (maxDepth) so the games are fast and don't depend on the speed of the machine.
+
+    The population is written to the checkpoint file after every generation. If the file already exists when the tuner
+    starts, it continues with the saved population, so an interrupted run only loses the current generation. All
+    random numbers of a generation come from the seed and the number of the generation. The engines themselves search
+    on a single thread without a time limit, and their only random numbers are seeded with the analysed boards (see
+    BoardAnalyser.calcLowerBounds), so a resumed run plays exactly the same games as an uninterrupted one (no matter
+    how many threads the tuner uses).
+
+    The checkpoint is a text file: the number of the next generation in the first line, then one member per line (the
+    factors separated by spaces), the best member of the last generation first.
+ */
+public class FactorTuner {
+    public int populationSize = 16;
+    // games of every member per generation, half of them with each color
+    public int gamesPerMember = 8;
+    public int maxDepth = 3;
+    public int openingPlies = 4;
+    // the probability to change a factor of a child, and how much it is changed (relative to the factor)
+    public double mutationRate = 0.3;
+    public double mutationStrength = 0.2;
+    public long seed = 1;
+
+    private final Path checkpoint;
+    private final int threads;
+
+    private int generation;
+    private float[][] population;
+
+    public FactorTuner(Path checkpoint, int threads) {
+        this.checkpoint = checkpoint;
+        this.threads = threads;
+    }
+
+    // runs until the given number of generations (including the ones of earlier runs) is done, returns the best factors
+    public float[] run(int generations) throws IOException, InterruptedException {
+        if (Files.exists(checkpoint)) {
+            load();
+        } else {
+            generation = 0;
+            population = initialPopulation();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            while (generation < generations) {
+                long start = System.nanoTime();
+                double bestScore = evolve(executor);
+                generation++;
+                save();
+                System.out.printf("generation %d: best member won %.1f%% (%.1f s), factors %s%n", generation,
+                        100 * bestScore, (System.nanoTime() - start) / 1e9, Arrays.toString(population[0]));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return population[0].clone();
+    }
+
+    // the default factors and mutations of them
+    private float[][] initialPopulation() {
+        Random random = new Random(seed);
+        float[][] members = new float[populationSize][];
+        members[0] = HardMinMax.defaultFactors();
+        for (int i = 1; i < populationSize; i++) {
+            members[i] = mutate(members[0], random);
+        }
+        return members;
+    }
+
+    // plays the games of one generation and replaces the worse half, returns the score of the best member
+    private double evolve(ExecutorService executor) throws InterruptedException {
+        Random random = new Random(seed * 1_000_003 + generation);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        List<int[]> pairs = new ArrayList<>();
+        for (int member = 0; member < populationSize; member++) {
+            for (int pair = 0; pair < gamesPerMember / 2; pair++) {
+                int opponent = (member + 1 + random.nextInt(populationSize - 1)) % populationSize;
+                long openingSeed = random.nextLong();
+                for (int color = 0; color < 2; color++) {
+                    int vertical = color == 0 ? member : opponent;
+                    int horizontal = color == 0 ? opponent : member;
+                    pairs.add(new int[]{vertical, horizontal});
+                    futures.add(executor.submit(() -> play(population[vertical], population[horizontal],
+                            openingSeed)));
+                }
+            }
+        }
+
+        // every member also gets the results of the games it was chosen as opponent for
+        int[] wins = new int[populationSize];
+        int[] games = new int[populationSize];
+        for (int i = 0; i < futures.size(); i++) {
+            boolean verticalWon;
+            try {
+                verticalWon = futures.get(i).get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A game of the tuner failed", e.getCause());
+            }
+            int[] pair = pairs.get(i);
+            wins[verticalWon ? pair[0] : pair[1]]++;
+            games[pair[0]]++;
+            games[pair[1]]++;
+        }
+
+        Integer[] ranking = new Integer[populationSize];
+        for (int i = 0; i < populationSize; i++) {
+            ranking[i] = i;
+        }
+        Arrays.sort(ranking, (a, b) -> Double.compare(score(wins, games, b), score(wins, games, a)));
+        double bestScore = score(wins, games, ranking[0]);
+
+        float[][] next = new float[populationSize][];
+        int survivors = Math.max(1, populationSize / 2);
+        for (int i = 0; i < survivors; i++) {
+            next[i] = population[ranking[i]];
+        }
+        for (int i = survivors; i < populationSize; i++) {
+            float[] first = next[random.nextInt(survivors)];
+            float[] second = next[random.nextInt(survivors)];
+            float[] child = new float[first.length];
+            for (int factor = 0; factor < child.length; factor++) {
+                child[factor] = random.nextBoolean() ? first[factor] : second[factor];
+            }
+            next[i] = mutate(child, random);
+        }
+        population = next;
+        return bestScore;
+    }
+
+    private static double score(int[] wins, int[] games, int member) {
+        return games[member] == 0 ? 0 : (double) wins[member] / games[member];
+    }
+
+    private float[] mutate(float[] factors, Random random) {
+        float[] mutated = factors.clone();
+        for (int i = 0; i < mutated.length; i++) {
+            if (random.nextDouble() < mutationRate) {
+                // factors close to 0 still get a noticeable change
+                mutated[i] += (float) (random.nextGaussian() * mutationStrength * Math.max(Math.abs(mutated[i]), 0.5));
+            }
+        }
+        return mutated;
+    }
+
+    // true if the vertical engine wins
+    private boolean play(float[] verticalFactors, float[] horizontalFactors, long openingSeed) {
+        Random random = new Random(openingSeed);
+        AI vertical = new Tournament.RandomOpening(engine(verticalFactors), random, openingPlies);
+        AI horizontal = new Tournament.RandomOpening(engine(horizontalFactors), random, openingPlies);
+        Game game = new Game(vertical, horizontal);
+        game.runGame();
+        return game.getWinner() == vertical;
+    }
+
+    private HardMinMax engine(float[] factors) {
+        HardMinMax engine = new HardMinMax(new BoardStorage(4));
+        engine.factors = factors;
+        engine.maxDepth = maxDepth;
+        return engine;
+    }
+
+    // the file is replaced at once, so an interruption while saving leaves the old checkpoint
+    private void save() throws IOException {
+        StringBuilder text = new StringBuilder().append(generation).append('\n');
+        for (float[] member : population) {
+            for (int i = 0; i < member.length; i++) {
+                text.append(i == 0 ? "" : " ").append(member[i]);
+            }
+            text.append('\n');
+        }
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.write(temporary, text.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() throws IOException {
+        List<String> lines = Files.readAllLines(checkpoint, StandardCharsets.UTF_8);
+        generation = Integer.parseInt(lines.get(0).trim());
+        population = new float[lines.size() - 1][];
+        for (int i = 1; i < lines.size(); i++) {
+            String[] values = lines.get(i).trim().split(" ");
+            population[i - 1] = new float[values.length];
+            for (int factor = 0; factor < values.length; factor++) {
+                population[i - 1][factor] = Float.parseFloat(values[factor]);
+            }
+        }
+        populationSize = population.length;
+    }
+
+    /*
+        Usage: FactorTuner <checkpoint file> [generations] [threads]
+
+        The best factors are printed after every generation, they can be used as HardMinMax.factors.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        float[] best = new FactorTuner(Paths.get(args[0]), threads).run(generations);
+        System.out.println("best factors: " + Arrays.toString(best));
+    }
+}
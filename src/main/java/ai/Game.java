@@ -3,29 +3,53 @@ package ai;
 import java.util.Arrays;
 
 public class Game {
-    private static final int BOARD_LENGTH = 13;
+    public static final int DEFAULT_SIZE = 13;
     private final AI verticalAI;
     private final AI horizontalAI;
     private final boolean visual;
+    private final int width;
+    private final int height;
     private Player winner;
+    private int moveCount;
+    // the number of legal placements of each player (indexed by the ordinal of the player), updated by every move
+    // instead of scanning the whole board for the next player
+    private final int[] placements = new int[Player.values().length];
 
     public Game(AI verticalAI, AI horizontalAI) {
-        this.verticalAI = verticalAI;
-        this.horizontalAI = horizontalAI;
-        this.visual = false;
+        this(verticalAI, horizontalAI, false);
     }
 
     // a visual game prints the current state of the board to the console after each move
     public Game(AI verticalAI, AI horizontalAI, boolean visual) {
+        this(verticalAI, horizontalAI, visual, DEFAULT_SIZE, DEFAULT_SIZE);
+    }
+
+    // any rectangular board, the width is the number of columns (x) and the height the number of rows (y)
+    public Game(AI verticalAI, AI horizontalAI, boolean visual, int width, int height) {
+        if (width < 1 || height < 1 || width > BitBoard.MAX_SIZE || height > BitBoard.MAX_SIZE) {
+            throw new IllegalArgumentException("Unsupported board size " + width + "x" + height);
+        }
         this.verticalAI = verticalAI;
         this.horizontalAI = horizontalAI;
         this.visual = visual;
+        this.width = width;
+        this.height = height;
     }
 
     public void runGame() {
         // start by initializing a new game, this way, runGame() could potentially be run more than once
         char[][] board = generateEmptyBoard();
+        // each AI gets its own view of the board, which only receives the two squares of every move instead of a new
+        // copy every turn. Whatever an AI does to its view, the board of the game stays untouched.
+        char[][] verticalView = generateEmptyBoard();
+        char[][] horizontalView = generateEmptyBoard();
+        placements[Player.V.ordinal()] = width * (height - 1);
+        placements[Player.H.ordinal()] = (width - 1) * height;
         Coordinate move;
+        SearchEvents.GameFinished event = new SearchEvents.GameFinished();
+        event.begin();
+        int moves = 0;
+        boolean invalidMove = false;
 
         // starting player -> always the vertical player for our game version
         Player currentPlayer = Player.V;
@@ -33,38 +57,49 @@ public class Game {
         if (visual) GameVisualizer.printBoard(board);
         while (true) {
             // is there another valid move possible for the current player
-            if (!canPlay(board, currentPlayer)) {
+            if (placements[currentPlayer.ordinal()] == 0) {
                 if (visual) System.out.println("" + currentPlayer + " can't place another piece, he lost!");
                 break;
             }
             if (visual) System.out.println("" + currentPlayer + "'s move:");
             // ask the AI for a new move (coordinates for a new piece)
             if (currentPlayer == Player.V) {
-                move = verticalAI.playMove(board, currentPlayer);
+                move = verticalAI.playMove(verticalView, currentPlayer);
             } else {
-                move = horizontalAI.playMove(board, currentPlayer);
+                move = horizontalAI.playMove(horizontalView, currentPlayer);
             }
 
             if (visual) System.out.println("Places a piece on " + move);
 
             // is the returned move actually valid
-            if (checkInvalidMoveSimple(board, move, currentPlayer)) {
+            if (move == null || !isLegal(board, move.getX(), move.getY(), currentPlayer)) {
                 if (visual) System.out.println("!!!! INVALID MOVE BY " + currentPlayer + " !!!!");
+                invalidMove = true;
                 break;
             }
 
             makeMove(board, move, currentPlayer);
+            placePiece(verticalView, move, currentPlayer);
+            placePiece(horizontalView, move, currentPlayer);
+            moves++;
             if (visual) GameVisualizer.printBoard(board);
 
             // change the play for the next round
             currentPlayer = currentPlayer.getOtherPlayer();
         }
         winner = currentPlayer.getOtherPlayer();
+        moveCount = moves;
+        if (event.shouldCommit()) {
+            event.moves = moves;
+            event.winner = winner.name();
+            event.invalidMove = invalidMove;
+            event.commit();
+        }
     }
 
     // generate an empty board filled with 'E'
     private char[][] generateEmptyBoard() {
-        char[][] board = new char[BOARD_LENGTH][BOARD_LENGTH];
+        char[][] board = new char[width][height];
         for (char[] column : board) {
             Arrays.fill(column, 'E');
         }
@@ -73,47 +108,60 @@ public class Game {
 
     // fulfill a returned move if it is valid
     private void makeMove(char[][] board, Coordinate move, Player p) {
+        removePlacements(board, move.getX(), move.getY(), p);
+        placePiece(board, move, p);
+    }
+
+    private void placePiece(char[][] board, Coordinate move, Player p) {
         board[move.getX()][move.getY()] = (p == Player.H ? 'H' : 'V');
         board[move.getX() + (p == Player.H ? 1 : 0)][move.getY() + (p == Player.H ? 0 : 1)] =
                 (p == Player.H ? 'H' : 'V');
     }
 
-    // test if a returned move is valid
-    private boolean checkInvalidMoveSimple(char[][] board, Coordinate move, Player p) {
-        return move.getX() < 0
-                || move.getX() >= BOARD_LENGTH
-                || move.getY() < 0
-                || move.getY() >= BOARD_LENGTH
-                || (p == Player.H && move.getX() + 1 >= BOARD_LENGTH)
-                || (p == Player.V && move.getY() + 1 >= BOARD_LENGTH)
-                || board[move.getX()][move.getY()] != 'E'
-                || (p == Player.H && board[move.getX() + 1][move.getY()] != 'E')
-                || (p == Player.V && board[move.getX()][move.getY() + 1] != 'E');
+    /*
+        A new piece only takes away the placements which overlap one of its two squares: for its own player the piece
+        itself and the ones right before and after it, for the other player the two placements through each square.
+        They have to be counted before the squares are occupied. Only makeMove changes the board (the AIs get views).
+     */
+    private void removePlacements(char[][] board, int x, int y, Player p) {
+        int dx = p == Player.H ? 1 : 0;
+        int dy = p == Player.V ? 1 : 0;
+        removePlacement(board, x - dx, y - dy, p);
+        removePlacement(board, x, y, p);
+        removePlacement(board, x + dx, y + dy, p);
+
+        // the other player's pieces are turned by 90 degrees
+        Player other = p.getOtherPlayer();
+        removePlacement(board, x - dy, y - dx, other);
+        removePlacement(board, x, y, other);
+        removePlacement(board, x + dx - dy, y + dy - dx, other);
+        removePlacement(board, x + dx, y + dy, other);
     }
 
-    // is there any move left for the current player? If not, the other player has one!
-    private boolean canPlay(char[][] board, Player p) {
-        if (p == Player.H) {
-            for (int y = 0; y < board[0].length; y++) {
-                for (int x = 0; x < board.length - 1; x++) {
-                    if (board[x][y] == 'E' && board[x + 1][y] == 'E') {
-                        return true;
-                    }
-                }
-            }
-        } else {
-            for (char[] column : board) {
-                for (int y = 0; y < column.length - 1; y++) {
-                    if (column[y] == 'E' && column[y + 1] == 'E') {
-                        return true;
-                    }
-                }
-            }
+    private void removePlacement(char[][] board, int x, int y, Player p) {
+        if (isLegal(board, x, y, p)) {
+            placements[p.ordinal()]--;
         }
-        return false;
+    }
+
+    // can the given player place a piece with its upper-left square on (x, y)
+    private boolean isLegal(char[][] board, int x, int y, Player p) {
+        int x2 = x + (p == Player.H ? 1 : 0);
+        int y2 = y + (p == Player.V ? 1 : 0);
+        return x >= 0
+                && y >= 0
+                && x2 < width
+                && y2 < height
+                && board[x][y] == 'E'
+                && board[x2][y2] == 'E';
     }
 
     public AI getWinner() {
         return winner == Player.V ? verticalAI : horizontalAI;
     }
+
+    // the number of pieces placed in the last game
+    public int getMoveCount() {
+        return moveCount;
+    }
 }
\ No newline at end of file
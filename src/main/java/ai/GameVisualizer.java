@@ -2,10 +2,15 @@ package ai;
 
 public class GameVisualizer {
 
+    // the coordinates are printed as a single digit: 0-9 and a-z, boards with more than 36 columns or rows start again
+    private static char label(int coordinate) {
+        return Character.forDigit(coordinate % 36, 36);
+    }
+
     public static void printBoard(char[][] board) {
         System.out.print(" ");
         for (int x = 0; x < board.length; x++) {
-            System.out.print(" " + Integer.toHexString(x));
+            System.out.print(" " + label(x));
         }
         System.out.println();
 
@@ -16,7 +21,7 @@ public class GameVisualizer {
         System.out.println("━┓");
 
         for (int y = 0; y < board[0].length; y++) {
-            System.out.print(Integer.toHexString(y) + "┃");
+            System.out.print(label(y) + "┃");
             for (char[] chars : board) {
                 if (chars[y] != 'E') {
                     System.out.print(chars[y] + "┃");
@@ -1,48 +1,360 @@
 package ai;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class HardMinMax extends AI {
     public float[] factors = null;
+    // search all moves except the first one with a null window first, and use aspiration windows in iterative deepening
+    public boolean principalVariationSearch = false;
+    // try the killer moves first within each move category (they didn't pay off in the tests with the default factors)
+    public boolean killerMoves = false;
+    // split the board into independent regions in the endgame and solve them as a sum of games (see RegionSolver)
+    public boolean endgameRegions = false;
+    // precomputed values of small regions for the endgame (see RegionDatabase), without it they are solved on the fly
+    // (only used with endgameRegions)
+    public RegionDatabase regionDatabase = null;
+    // moves for the first plies which were searched deeply in advance (see OpeningBook), replaces the simple openings
+    public OpeningBook openingBook = null;
+    // keep searching in the background while the opponent thinks about the reply to our move
+    public boolean pondering = false;
+    // caps the depth of the searches without a time budget, e.g. for the fast games of the FactorTuner
+    public int maxDepth = Integer.MAX_VALUE;
+    // let symmetric positions share their entries of the scoreMap (see Searcher.canonicalKey)
+    public boolean symmetricPositions = false;
+
+    // the file which keeps the shared scoreMap between runs, e.g. -Dai.scoreMapFile=scores.bin
+    public static final String SCORE_MAP_FILE_PROPERTY = "ai.scoreMapFile";
 
     // store the already calculated scores for each board configuration for the ultimate performance boost
-    static BoardStorage scoreMapHorizontalStarter = new BoardStorage();
-    static BoardStorage scoreMapVerticalStarter = new BoardStorage();
+    // (the storage is only allocated when the first instance uses it, see the no-arg constructor)
+    private static final class SharedScoreMap {
+        static final BoardStorage INSTANCE = create();
+
+        // without the property, every run starts with an empty table
+        private static BoardStorage create() {
+            BoardStorage storage = new BoardStorage(BoardStorage.DEFAULT_SIZE_MB);
+            String fileName = System.getProperty(SCORE_MAP_FILE_PROPERTY);
+            if (fileName != null) {
+                Path file = Path.of(fileName);
+                // the first run creates the file, a broken one is simply overwritten at the exit
+                if (Files.exists(file)) {
+                    try {
+                        storage.load(file);
+                    } catch (IOException e) {
+                        System.err.println("Could not load the transposition table from " + file + ": " + e);
+                    }
+                }
+                storage.saveOnShutdown(file);
+            }
+            return storage;
+        }
+    }
+
+    // the storage used by all instances created with the no-arg constructor, e.g. to save or load it explicitly
+    public static BoardStorage sharedScoreMap() {
+        return SharedScoreMap.INSTANCE;
+    }
+
+    private final BoardStorage scoreMap;
+    // the search uses the threads of this pool as well, without a pool the whole search runs on the calling thread
+    private final ForkJoinPool pool;
+    private final ParallelSearch parallelSearch;
+
+    // analyses the root board, which is done without bounds
+    private BoardAnalyser rootAnalyser;
+    // runs the search on the calling thread
+    private Searcher searcher;
+    // searchers which are currently not used by a parallel task, each task borrows one for the time it is running
+    private final ConcurrentLinkedQueue<Searcher> idleSearchers = new ConcurrentLinkedQueue<>();
+
+    // used as deadline if the search has no time limit
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    // number of nodes between two looks at the clock (power of two)
+    private static final int DEADLINE_CHECK_INTERVAL = 128;
+    // the pondering search runs until it is stopped
+    private static final Duration PONDER_BUDGET = Duration.ofDays(1);
+
+    // System.nanoTime() value at which the running search is aborted
+    private volatile long deadline = NO_DEADLINE;
+    // set as soon as the deadline is reached, the results of the search are incomplete afterwards
+    private volatile boolean aborted;
+    // tells the lazy SMP helpers that the main search is done
+    private volatile boolean stopHelpers;
+    // depth of the last completed search (or iteration) of findBestMove
+    private int completedDepth;
+    // nanoseconds from the start of findBestMove until the end of its last completed search (or iteration)
+    private long completedNanos;
+    // the counts of the last findBestMove, null if the last move was played without a search
+    private SearchStats lastSearch;
+
+    // the search which runs while the opponent is thinking (see startPondering)
+    private Thread ponderThread;
+    // runs the pondering search with its own search state, so the lock of this instance stays free in the meantime
+    private HardMinMax ponderEngine;
+    // set on the ponder engine to abort its search (see Searcher.timeIsUp)
+    private volatile boolean ponderStopped;
+    // the position which is pondered, and the result of the last completed iteration (-1 if there is none yet)
+    private BitBoard ponderBoard;
+    private Player ponderPlayer;
+    private int ponderMove = -1;
+    private int ponderDepth;
+    private long ponderNanos;
+
+    /*
+        The ways the threads of the pool can be used:
+
+        ROOT_SPLIT: the root moves are split between the threads, each one searches some of them on its own.
+        LAZY_SMP: all threads search the whole tree of the same position (the helpers in another order and partially
+                  one ply deeper). They only communicate through the shared scoreMap: the helpers fill it with scores
+                  which the main search can use, the result of the main search is the one which is played.
+        YOUNG_BROTHERS_WAIT: the tree is split at every node which is deep enough, not only at the root. The first
+                  move of a node is searched alone, then all other moves of the node are searched in parallel.
+     */
+    public enum ParallelSearch {
+        ROOT_SPLIT,
+        LAZY_SMP,
+        YOUNG_BROTHERS_WAIT
+    }
+
+    // half the width of the aspiration window around the score of the previous iteration
+    private static final float ASPIRATION_WINDOW = 16f;
+
+    // score of the best move which was found by the last root search
+    private float rootScore;
+
+    // below this number of empty squares, the board is split into regions which are solved on their own
+    private static final int ENDGAME_EMPTY_SQUARES = 40;
+    // score of a position which is proven to be won (plus the number of spare moves), far above the scores of
+    // scoreSituation near the endgame (all of its counts are limited by the number of empty squares)
+    private static final float PROVEN_WIN = 10000f;
+    // proven scores are exact for every remaining depth, this is the largest depth the scoreMap can store
+    private static final int PROVEN_DEPTH = 0xFF;
+
+    // nodes with less remaining depth are always searched by a single thread, splitting them would cost more than it saves
+    private static final int MIN_SPLIT_DEPTH = 4;
+
+    // all instances created with this constructor share one storage (like before, the scores are kept between moves)
+    public HardMinMax() {
+        this(SharedScoreMap.INSTANCE);
+    }
+
+    public HardMinMax(BoardStorage scoreMap) {
+        this(scoreMap, null);
+    }
+
+    // with a pool, the root moves are searched in parallel (the pool may be shared with other instances)
+    public HardMinMax(BoardStorage scoreMap, ForkJoinPool pool) {
+        this(scoreMap, pool, ParallelSearch.ROOT_SPLIT);
+    }
+
+    public HardMinMax(BoardStorage scoreMap, ForkJoinPool pool, ParallelSearch parallelSearch) {
+        this.scoreMap = scoreMap;
+        this.pool = pool;
+        this.parallelSearch = parallelSearch;
+    }
 
     @Override
-    public synchronized Coordinate playMove(char[][] board, Player player) {
+    public Coordinate playMove(char[][] board, Player player) {
+        return play(board, player, null).move;
+    }
+
+    // same as playMove, but the search deepens step by step until the time budget is used up
+    @Override
+    public Coordinate playMove(char[][] board, Player player, Duration budget) {
+        return play(board, player, budget).move;
+    }
+
+    // same as playMove (without a time budget if it is null), returns the move together with the counts of the search
+    public SearchStats playMoveWithStats(char[][] board, Player player, Duration budget) {
+        return play(board, player, budget);
+    }
+
+    // searches the position without looking at any opening, this is how the opening book is generated
+    synchronized Coordinate searchMove(BitBoard board, Player player, Duration budget) {
+        scoreMap.newSearch();
+        return findBestMove(board.copy(), player, budget);
+    }
+
+    // a single search with the given depth limit instead of the one of the board state (used by the benchmarks)
+    synchronized Coordinate searchFixedDepth(BitBoard board, Player player, int depth) {
+        scoreMap.newSearch();
+        return findBestMove(board.copy(), player, null, depth);
+    }
+
+    // generates the moves of the layout like at the root of a search, returns their number (used by the benchmarks)
+    synchronized int generateMoves(BitBoard board, BoardLayout layout, Player player) {
+        prepareSearchers(board);
+        return searcher.generateNextPossibleMoves(layout, player, false);
+    }
+
+    synchronized long getSearchedNodes() {
+        return lastSearch != null ? lastSearch.nodes : 0;
+    }
+
+    private SearchStats play(char[][] board, Player player, Duration budget) {
+        // the result of the pondering search is only complete once it has stopped
+        stopPondering();
+        synchronized (this) {
+            SearchEvents.MoveDecision event = new SearchEvents.MoveDecision();
+            event.begin();
+            lastSearch = null;
+            Coordinate move = chooseMove(board, player, budget);
+            SearchStats stats = lastSearch != null ? lastSearch : new SearchStats();
+            stats.move = move;
+            if (event.shouldCommit()) {
+                event.player = player.name();
+                event.blockedSquares = anonymizeBoard(board).occupiedCount();
+                event.searched = lastSearch != null;
+                event.depth = stats.depth;
+                event.nodes = stats.nodes;
+                event.tableProbes = stats.tableProbes;
+                event.tableHits = stats.tableHits;
+                event.commit();
+            }
+            if (pondering && move != null) {
+                startPondering(board, move, player);
+            }
+            return stats;
+        }
+    }
+
+    private Coordinate chooseMove(char[][] board, Player player, Duration budget) {
         // play an opening -> for better performance (an empty board is pretty expensive to calculate)
-        Coordinate opening = BoardAnalyser.trySimpleOpening(board, player);
+        Coordinate opening = openingBook == null ? BoardAnalyser.trySimpleOpening(board, player) : null;
         if (opening != null) {
             return opening;
         }
+        BitBoard bitBoard = anonymizeBoard(board);
+        opening = openingBook == null ? null : openingBook.lookup(bitBoard, player);
+        if (opening != null) {
+            return opening;
+        }
+
+        // ponder hit: the opponent played the expected move and the pondering already searched as much as we would now
+        if (ponderMove != -1 && player == ponderPlayer && bitBoard.equals(ponderBoard)
+                && (budget == null ? ponderDepth >= depthLimit(bitBoard) : ponderNanos >= budget.toNanos())) {
+            return Coordinate.fromPacked(ponderMove);
+        }
 
         // for medium and hard mode, we use our minimax-algorithm
-        return findBestMove(anonymizeBoard(board), player);
+        scoreMap.newSearch();
+        return findBestMove(bitBoard, player, budget);
     }
 
     /*
-        Because of the nature of our board layout, we only take into consideration whether a square is occupied (X) or
-        empty (E). This greatly increases the performance!
+        Pondering: after our move, the opponent's reply is guessed (the best move for the opponent which the search
+        stored in the scoreMap, or a search of depth 1 if there is none) and the position after it is searched in the
+        background with iterative deepening until the next playMove call. If the guess was right, that call can return
+        the pondered move right away (ponder hit). Otherwise it still finds the scores of all the positions which both
+        searches have in common in the scoreMap.
      */
-    private char[][] anonymizeBoard(char[][] board) {
-        char[][] boardCopy = new char[board.length][board[0].length];
-        for (int x = 0; x < board.length; x++) {
-            for (int y = 0; y < board[0].length; y++) {
-                boardCopy[x][y] = (board[x][y] == 'V' || board[x][y] == 'H' ? 'X' : 'E');
+    private void startPondering(char[][] board, Coordinate move, Player player) {
+        BitBoard next = anonymizeBoard(board);
+        next.place(move.getX(), move.getY(), player);
+        Player opponent = player.getOtherPlayer();
+        if (next.countPlacements(opponent) == 0) {
+            // the game is over
+            return;
+        }
+        ponderBoard = null;
+        ponderMove = -1;
+        if (ponderEngine == null) {
+            ponderEngine = new HardMinMax(scoreMap, pool, parallelSearch);
+        }
+        HardMinMax engine = ponderEngine;
+        engine.factors = factors;
+        engine.principalVariationSearch = principalVariationSearch;
+        engine.killerMoves = killerMoves;
+        engine.endgameRegions = endgameRegions;
+        engine.regionDatabase = regionDatabase;
+        engine.maxDepth = maxDepth;
+        engine.symmetricPositions = symmetricPositions;
+        engine.ponderStopped = false;
+        ponderThread = new Thread(() -> ponder(engine, next, player, opponent), "ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    // runs on the ponder thread, only the results are written to this instance (they are read after stopPondering)
+    private void ponder(HardMinMax engine, BitBoard next, Player player, Player opponent) {
+        synchronized (engine) {
+            if (engine.ponderStopped) {
+                return;
+            }
+            // the search of our move was done with us as starting player, so its entries are found with the same key
+            engine.prepareSearchers(next);
+            BoardStorage.StateInfo state = engine.searcher.loadScore(next, player, opponent);
+            int reply = state != null ? state.move : -1;
+            if (reply == -1 || !next.canPlace(Coordinate.unpackX(reply), Coordinate.unpackY(reply), opponent)) {
+                // still part of the search of our move, so it doesn't start a new one in the scoreMap
+                reply = engine.findBestMove(next.copy(), opponent, null, 1).pack();
+            }
+            next.place(Coordinate.unpackX(reply), Coordinate.unpackY(reply), opponent);
+            if (engine.ponderStopped || next.countPlacements(player) == 0) {
+                return;
+            }
+
+            ponderBoard = next;
+            ponderPlayer = player;
+            engine.scoreMap.newSearch();
+            // no time limit, stopPondering() aborts the search (see Searcher.timeIsUp)
+            Coordinate pondered = engine.findBestMove(next.copy(), player, PONDER_BUDGET);
+            if (engine.completedDepth > 0) {
+                ponderMove = pondered.pack();
+                ponderDepth = engine.completedDepth;
+                // the aborted last iteration doesn't count, only the time which the completed ones took
+                ponderNanos = engine.completedNanos;
             }
         }
-        return boardCopy;
     }
 
-    // tests how far the game has already commenced and adjusts the depth limit accordingly
-    private int depthForBoardState(char[][] board) {
-        int blocked = 0;
-        for (char[] row : board) {
-            for (char c : row) {
-                if (c != 'E') blocked++;
+    // stops the pondering search and waits until it is finished, its results stay available for a ponder hit
+    private void stopPondering() {
+        Thread thread = ponderThread;
+        if (thread == null) {
+            return;
+        }
+        ponderEngine.ponderStopped = true;
+        // the search stops at its next node, so an interrupt doesn't have to end the waiting early
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
             }
         }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        ponderThread = null;
+    }
+
+    /*
+        Because of the nature of our board layout, we only take into consideration whether a square is occupied (X) or
+        empty (E). This greatly increases the performance! The search itself runs on a BitBoard, which stores exactly
+        this information as one bit per square.
+     */
+    private BitBoard anonymizeBoard(char[][] board) {
+        return BitBoard.fromBoard(board);
+    }
+
+    private int depthLimit(BitBoard board) {
+        return Math.min(depthForBoardState(board), maxDepth);
+    }
+
+    // tests how far the game has already commenced and adjusts the depth limit accordingly
+    private int depthForBoardState(BitBoard board) {
+        int blocked = board.occupiedCount();
 
         // for the dynamic depth adjustment, I used a sigmoid-like curve which was fitted by probing values in geogebra
         return (int) (20 / (1 + Math.pow(1.035, (-blocked + 95)))) + 1;
@@ -58,164 +370,512 @@ public class HardMinMax extends AI {
         which has the lowest score associated with it. Player A tries to play the move with the maximum score and thus
         the resulting tree is composed of alternating minimum and maximum phases.
      */
-    private Coordinate findBestMove(char[][] board, Player player) {
-        Coordinate[] possibleMoves = generateNextPossibleMoves(board, player, null, false);
-        Coordinate currentBestMove = null;
+    private Coordinate findBestMove(BitBoard board, Player player, Duration budget) {
+        return findBestMove(board, player, budget, depthLimit(board));
+    }
 
-        // this "currentBestScore" should be updated as soon as a score higher than the lowest possible score is found
-        float currentBestScore = Float.NEGATIVE_INFINITY;
+    // without a time budget, the search is done with the given depth limit. The caller decides whether the search
+    // is a new one for the scoreMap (newSearch), so the entries of the previous searches become replaceable.
+    private Coordinate findBestMove(BitBoard board, Player player, Duration budget, int depthLimit) {
+        long start = System.nanoTime();
+        prepareSearchers(board);
+        searcher.reset(board);
+        rootAnalyser.analyse(board, true);
+        // the searchers of the parallel tasks keep their killers and history for the whole game as well
+        searcher.ageMoveOrder();
+        for (Searcher idle : idleSearchers) {
+            idle.ageMoveOrder();
+        }
+
+        BoardLayout rootLayout = (player == Player.V ? rootAnalyser.vertical : rootAnalyser.horizontal);
+        int moveCount = searcher.generateNextPossibleMoves(rootLayout, player, false);
+        int[] possibleMoves = searcher.moveBuffers[0];
+        int currentBestMove;
+
+        if (budget == null) {
+            // without a time budget, a single search with the depth limit of the board state is done
+            deadline = NO_DEADLINE;
+            SearchEvents.Iteration iteration = new SearchEvents.Iteration();
+            iteration.begin();
+            currentBestMove = searchRoot(board, player, possibleMoves, moveCount, depthLimit);
+            completedDepth = depthLimit;
+            completedNanos = System.nanoTime() - start;
+            commitIteration(iteration, depthLimit, currentBestMove);
+        } else {
+            /*
+            Iterative deepening: the search is repeated with a depth limit which grows by one every iteration until the
+            time is up. The scores of the previous iterations are still in the scoreMap, so the repeated work is cheap
+            compared to the last iteration. Only the result of a completed iteration is used, because an aborted one
+            hasn't seen all the moves. The best move of an iteration is tried first in the next one, so an aborted
+            iteration has at least looked at it.
+             */
+            deadline = System.nanoTime() + budget.toNanos();
+            currentBestMove = -1;
+            completedDepth = 0;
+            completedNanos = 0;
+            // every move covers two squares, the game can't last longer than this (the maxDepth field only caps the
+            // searches without a time budget)
+            int remainingPlies = (board.getWidth() * board.getHeight() - board.occupiedCount()) / 2 + 1;
+            float previousScore = Float.NaN;
+            for (int depth = 1; depth <= remainingPlies && System.nanoTime() - deadline < 0; depth++) {
+                SearchEvents.Iteration iteration = new SearchEvents.Iteration();
+                iteration.begin();
+                int move = searchRootAspiration(board, player, possibleMoves, moveCount, depth, previousScore);
+                commitIteration(iteration, depth, move);
+                if (aborted) {
+                    break;
+                }
+                currentBestMove = move;
+                completedDepth = depth;
+                completedNanos = System.nanoTime() - start;
+                previousScore = rootScore;
+                moveToFront(possibleMoves, moveCount, move);
+            }
+        }
+        SearchEvents.TableUsage tableUsage = new SearchEvents.TableUsage();
+        if (tableUsage.shouldCommit()) {
+            tableUsage.capacity = scoreMap.capacity();
+            tableUsage.used = scoreMap.usage();
+            tableUsage.current = scoreMap.currentUsage();
+            tableUsage.commit();
+        }
+
+        // after the search, every searcher which was borrowed is idle again
+        lastSearch = new SearchStats();
+        lastSearch.depth = completedDepth;
+        lastSearch.elapsedNanos = System.nanoTime() - start;
+        searcher.addStats(lastSearch);
+        for (Searcher idle : idleSearchers) {
+            idle.addStats(lastSearch);
+        }
+
+        if (currentBestMove == -1) {
+            // if all fails and all scores are somehow equal to Integer.MIN_VALUE, we take the first item from the
+            // generated possible moves and return it. If even the board cover is empty, any legal placement will do.
+            int allMoves = searcher.generateNextPossibleMoves(rootLayout, player, true);
+            return allMoves > 0 ? Coordinate.fromPacked(searcher.moveBuffers[0][0]) : board.firstPlacement(player);
+        }
+        return Coordinate.fromPacked(currentBestMove);
+    }
+
+    private void commitIteration(SearchEvents.Iteration iteration, int depth, int move) {
+        if (iteration.shouldCommit()) {
+            iteration.depth = depth;
+            iteration.completed = !aborted;
+            iteration.move = move != -1 ? Coordinate.fromPacked(move).toString() : null;
+            iteration.score = rootScore;
+            iteration.commit();
+        }
+    }
+
+    // the searchers have to match the size of the board, the per-game settings are handed to them before every search
+    private void prepareSearchers(BitBoard board) {
+        if (searcher == null || searcher.width != board.getWidth() || searcher.height != board.getHeight()) {
+            searcher = new Searcher(board.getWidth(), board.getHeight());
+            rootAnalyser = new BoardAnalyser(board.getWidth(), board.getHeight());
+            idleSearchers.clear();
+        }
+        searcher.regionSolver.setDatabase(regionDatabase);
+        searcher.resetStats();
+        for (Searcher idle : idleSearchers) {
+            idle.resetStats();
+        }
+        if (factors == null) {
+            factors = defaultFactors();
+        }
+    }
+
+    /*
+        Aspiration windows: the score of an iteration is usually close to the one of the previous iteration, so the
+        search starts with a small window around it. Everything outside of the window is cut off early. Only if the
+        score really is outside (fail low or fail high), that side of the window is opened and the search is repeated.
+     */
+    private int searchRootAspiration(BitBoard board, Player player, int[] possibleMoves, int moveCount, int maxDepth,
+                                     float previousScore) {
+        float alpha = Float.NEGATIVE_INFINITY;
+        float beta = Float.POSITIVE_INFINITY;
+        if (principalVariationSearch && Float.isFinite(previousScore)) {
+            alpha = previousScore - ASPIRATION_WINDOW;
+            beta = previousScore + ASPIRATION_WINDOW;
+        }
+        while (true) {
+            int move = searchRoot(board, player, possibleMoves, moveCount, maxDepth, alpha, beta);
+            if (aborted) {
+                return -1;
+            }
+            if (rootScore <= alpha && alpha != Float.NEGATIVE_INFINITY) {
+                alpha = Float.NEGATIVE_INFINITY;
+            } else if (rootScore >= beta && beta != Float.POSITIVE_INFINITY) {
+                beta = Float.POSITIVE_INFINITY;
+            } else {
+                return move;
+            }
+        }
+    }
+
+    private int searchRoot(BitBoard board, Player player, int[] possibleMoves, int moveCount, int maxDepth) {
+        return searchRoot(board, player, possibleMoves, moveCount, maxDepth,
+                Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
+    }
+
+    // tries all entered root moves with the given depth limit, returns the best move or -1 if there is none
+    private int searchRoot(BitBoard board, Player player, int[] possibleMoves, int moveCount, int maxDepth,
+                           float alpha, float beta) {
+        aborted = false;
+        if (pool != null && parallelSearch == ParallelSearch.LAZY_SMP) {
+            return searchRootLazySmp(board, player, possibleMoves, moveCount, maxDepth, alpha, beta);
+        }
+        if (pool != null && parallelSearch == ParallelSearch.YOUNG_BROTHERS_WAIT) {
+            // the nodes below the root can only be split if the search runs on a thread of the pool
+            return pool.invoke(ForkJoinTask.adapt(
+                    () -> moveCount > 1
+                            ? searchRootParallel(board, player, possibleMoves, moveCount, maxDepth, alpha, beta)
+                            : searchRootSequential(searcher, board, player, possibleMoves, moveCount, maxDepth,
+                                                   alpha, beta)
+            ));
+        }
+        if (pool != null && moveCount > 1) {
+            return searchRootParallel(board, player, possibleMoves, moveCount, maxDepth, alpha, beta);
+        }
+        return searchRootSequential(searcher, board, player, possibleMoves, moveCount, maxDepth, alpha, beta);
+    }
 
-        int maxDepth = depthForBoardState(board);
+    private int searchRootSequential(Searcher rootSearcher, BitBoard board, Player player, int[] possibleMoves,
+                                     int moveCount, int maxDepth, float alpha, float beta) {
+        int currentBestMove = -1;
+
+        // this "currentBestScore" should be updated as soon as a score higher than the lowest possible score is found
+        float currentBestScore = alpha;
 
         // just try these possibleMoves in their natural order
-        for (Coordinate move : possibleMoves) {
-            applyMove(board, move, player);
-            float nextBestScore = minimaxAlphaBeta(
-                    board,
-                    player.getOtherPlayer(),
-                    player,
-                    maxDepth,
-                    currentBestScore,
-                    Float.POSITIVE_INFINITY
-            );
-            undoMove(board, move, player);
+        for (int i = 0; i < moveCount; i++) {
+            int move = possibleMoves[i];
+            float nextBestScore;
+            if (principalVariationSearch && i > 0) {
+                // the first move is probably the best one, so the others only have to prove that they are worse
+                nextBestScore = rootSearcher.searchMove(board, move, player, maxDepth, currentBestScore,
+                        Math.nextUp(currentBestScore));
+                if (nextBestScore > currentBestScore && nextBestScore < beta && !rootSearcher.isStopped()) {
+                    nextBestScore = rootSearcher.searchMove(board, move, player, maxDepth, currentBestScore, beta);
+                }
+            } else {
+                nextBestScore = rootSearcher.searchMove(board, move, player, maxDepth, currentBestScore, beta);
+            }
+            if (rootSearcher.isStopped()) {
+                return -1;
+            }
             // because the current player is always the maximizing player and we can't prune, we have to go through
             // each entry and always update the current maximum score and the associated move
             if (nextBestScore > currentBestScore) {
                 currentBestScore = nextBestScore;
                 currentBestMove = move;
             }
+            // only possible with an aspiration window, the window has to be opened anyway
+            if (currentBestScore >= beta) {
+                break;
+            }
         }
-        if (currentBestMove == null) {
-            // if all fails and all scores are somehow equal to Integer.MIN_VALUE, we take the first item from the
-            // generated possible moves and return it.
-            return generateNextPossibleMoves(board, player, null, true)[0];
+        // the lazy SMP helpers run this as well, but only the result of the main search may be kept
+        if (rootSearcher == searcher) {
+            rootScore = currentBestScore;
         }
         return currentBestMove;
     }
 
     /*
-        The key in efficient solution finding is reducing the unnecessary calculations in our tree. The "scoreSituation"
-        method always tests if winning is still possible and otherwise returns a low score.
-
-        Alpha-Beta-Pruning:
-            -> alpha: currently the highest score (reference for the maximising player)
-            -> beta: currently the lowest score (reference for the minimising player)
-
-            Case 1:
-            -------
-            We are currently the maximizing player. The previous player (minimizing) gave us his updated "beta"-score.
-            Only if our score is lower than the given beta score, our branch is of interest, otherwise there exists
-            another branch with a lower score and because the previous player was minimizing, he would then take the other
-            branch. This means that if our current score is higher than the beta score, we can break the loop and return.
-
-            Case 2:
-            -------
-            We are the minimizing player. The previous player was maximizing and gave the current maximum score in the
-            alpha parameter. If our "best score" (the minimum) drops below the alpha score, we can break the search and
-            return, because even though this situation would be better for us, the previous player wouldn't take our
-            branch into consideration.
-
-        This special implementation of the minimax algorithm which negates the next call with changed alpha and beta
-        values is described in the doctoral thesis of Prof. dr. H.J. van den Herik: "Memory versus Search in Games".
-        It also involves storing the values which were calculated for even higher performance. Some more ideas came
-        from the already often cited master thesis of Nathan Bullock about the game domineering. Both papers didn't
-        contain actual code or the code was not reviewed by me.
+        Parallel version of the root search. The first move is searched on the calling thread, because its score is
+        needed as alpha value: without it, all other moves would be searched without any pruning at the root. All other
+        moves are then searched as fork-join tasks, each one on its own copy of the board with its own searcher.
+
+        Every task starts with the best score which was found by the tasks before and publishes its own score as soon
+        as it is done, so tasks which start later can still prune. A task which doesn't beat its alpha value only knows
+        that its move isn't better than one of the others, so only the tasks with a score above their alpha value are
+        candidates for the best move. Ties are broken by the move order, exactly like in the sequential search.
      */
-    private float minimaxAlphaBeta(char[][] board, Player currentPlayer, Player startingPlayer, int depth,
+    private int searchRootParallel(BitBoard board, Player player, int[] possibleMoves, int moveCount, int maxDepth,
                                    float alpha, float beta) {
-        float oldAlpha = alpha;
-        float oldBeta = beta;
+        float firstScore = searcher.searchMove(board, possibleMoves[0], player, maxDepth, alpha, beta);
+        if (aborted) {
+            return -1;
+        }
+        // outside of an aspiration window, the window has to be opened anyway (a full window is never left, like in
+        // the sequential search the other moves can still be better than a first move which doesn't beat alpha)
+        if ((firstScore <= alpha && alpha != Float.NEGATIVE_INFINITY)
+                || (firstScore >= beta && beta != Float.POSITIVE_INFINITY)) {
+            rootScore = firstScore;
+            return firstScore <= alpha ? -1 : possibleMoves[0];
+        }
+        int currentBestMove = firstScore > alpha ? possibleMoves[0] : -1;
+        float currentBestScore = Math.max(firstScore, alpha);
 
-        // first, try to load the score from the scoreMap
-        BoardStorage.StateInfo saveState = loadScore(board, startingPlayer);
+        AtomicInteger sharedAlpha = new AtomicInteger(Float.floatToRawIntBits(currentBestScore));
+        RootTask[] tasks = new RootTask[moveCount - 1];
+        for (int i = 1; i < moveCount; i++) {
+            tasks[i - 1] = new RootTask(board, possibleMoves[i], player, maxDepth, sharedAlpha, beta);
+        }
+        invokeAll(tasks);
+        if (aborted) {
+            return -1;
+        }
 
-        if (saveState != null && saveState.depth >= depth) {
-            if (saveState.type == '-' && saveState.score > alpha) {
-                alpha = saveState.score;
-            } else if (saveState.type == '+' && saveState.score < beta) {
-                beta = saveState.score;
+        for (RootTask task : tasks) {
+            if (task.score > task.alpha && task.score > currentBestScore) {
+                currentBestScore = task.score;
+                currentBestMove = task.move;
             }
+        }
+        rootScore = currentBestScore;
+        return currentBestMove;
+    }
 
-            if (saveState.type == '=' || alpha >= beta) {
-                return saveState.score;
+    /*
+        Lazy SMP: the main search runs on the calling thread exactly like the sequential search. At the same time, the
+        helpers search the same position on the threads of the pool. Every helper starts with another root move and
+        every second one searches one ply deeper, so they spread over the tree instead of all doing the same work. Their
+        results are only used through the scoreMap, which they fill with scores the main search would otherwise have to
+        calculate itself. As soon as the main search is done, the helpers are stopped.
+     */
+    private int searchRootLazySmp(BitBoard board, Player player, int[] possibleMoves, int moveCount, int maxDepth,
+                                  float alpha, float beta) {
+        int helperCount = Math.min(pool.getParallelism() - 1, moveCount);
+        ForkJoinTask<?>[] helpers = new ForkJoinTask<?>[Math.max(helperCount, 0)];
+        stopHelpers = false;
+        for (int i = 0; i < helpers.length; i++) {
+            int[] helperMoves = new int[moveCount];
+            int offset = (i + 1) % moveCount;
+            // the helper moves are rotated, so every helper starts with another move
+            System.arraycopy(possibleMoves, offset, helperMoves, 0, moveCount - offset);
+            System.arraycopy(possibleMoves, 0, helperMoves, moveCount - offset, offset);
+            helpers[i] = pool.submit(new HelperTask(board, player, helperMoves, maxDepth + (i & 1)));
+        }
+        try {
+            return searchRootSequential(searcher, board, player, possibleMoves, moveCount, maxDepth, alpha, beta);
+        } finally {
+            stopHelpers = true;
+            for (ForkJoinTask<?> helper : helpers) {
+                helper.join();
             }
         }
+    }
 
-        // The new BoardAnalyser object is used by both the scoring function and the possible moves generator. For
-        // performance improvement, it is only created once.
-        BoardAnalyser bA = new BoardAnalyser(board, false);
-        float score = scoreSituation(
-                depth,
-                (startingPlayer == Player.V) ? bA.vertical : bA.horizontal,
-                (startingPlayer == Player.V) ? bA.horizontal : bA.vertical
-        );
+    // runs the tasks on the pool and waits until all of them are done
+    private void invokeAll(ForkJoinTask<?>[] tasks) {
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(tasks);
+                }
+            });
+        }
+    }
 
-        if (score != Float.NEGATIVE_INFINITY) {
-            return score;
+    private Searcher borrowSearcher(BitBoard board, boolean helper) {
+        Searcher borrowed = idleSearchers.poll();
+        if (borrowed == null) {
+            borrowed = new Searcher(board.getWidth(), board.getHeight());
         }
+        borrowed.helper = helper;
+        borrowed.regionSolver.setDatabase(regionDatabase);
+        return borrowed;
+    }
 
-        Coordinate[] possibleMoves = generateNextPossibleMoves(board, currentPlayer, bA, false);
-        float nextBestScore;
+    // raises the shared alpha value to the given score (if it is higher)
+    private static void raiseAlpha(AtomicInteger alpha, float score) {
+        int current = alpha.get();
+        while (score > Float.intBitsToFloat(current)
+                && !alpha.compareAndSet(current, Float.floatToRawIntBits(score))) {
+            current = alpha.get();
+        }
+    }
 
-        // if true -> current player tries to maximize the score
-        boolean max = (currentPlayer == startingPlayer);
+    // searches a single root move on its own board copy (the tasks are never serialized)
+    @SuppressWarnings("serial")
+    private final class RootTask extends RecursiveAction {
+        private final BitBoard board;
+        private final int move;
+        private final Player player;
+        private final int maxDepth;
+        private final AtomicInteger sharedAlpha;
+        private final float beta;
 
-        // never go down / up with the score, but set the given best to be the lowest score for the "current best"
-        float currentBestScore = max ? alpha : beta;
+        // the alpha value the move was searched with and the resulting score
+        private float alpha;
+        private float score;
 
-        // goes through all possible moves which are basically just placing tiles in all calculated board cover
-        // regions. These regions are generated using a BoardAnalyser object.
-        for (Coordinate move : possibleMoves) {
-            applyMove(board, move, currentPlayer);
-            nextBestScore = minimaxAlphaBeta(
-                    board,
-                    currentPlayer.getOtherPlayer(),
-                    startingPlayer,
-                    depth - 1,
-                    max ? currentBestScore : alpha,
-                    max ? beta : currentBestScore
-            );
-            undoMove(board, move, currentPlayer);
+        private RootTask(BitBoard board, int move, Player player, int maxDepth, AtomicInteger sharedAlpha,
+                         float beta) {
+            this.board = board;
+            this.move = move;
+            this.player = player;
+            this.maxDepth = maxDepth;
+            this.sharedAlpha = sharedAlpha;
+            this.beta = beta;
+        }
 
-            // either we try to maximize the score, then update if the new score is higher than the current best
-            // or we try to minimize the score and therefore only update if the new score is lower than the current best
-            if ((max && nextBestScore > currentBestScore) || (!max && nextBestScore < currentBestScore)) {
-                currentBestScore = nextBestScore;
+        @Override
+        protected void compute() {
+            BitBoard copy = board.copy();
+            Searcher taskSearcher = borrowSearcher(copy, false);
+            try {
+                taskSearcher.reset(copy);
+                alpha = Float.intBitsToFloat(sharedAlpha.get());
+                score = taskSearcher.searchMove(copy, move, player, maxDepth, alpha, beta);
+                if (!aborted) {
+                    raiseAlpha(sharedAlpha, score);
+                }
+            } finally {
+                idleSearchers.add(taskSearcher);
             }
+        }
+    }
 
-            // this is the important alpha-beta-pruning improvement over the classic minimax-algorithm. The details
-            // of the implementations are written in the comment above this method.
-            if ((max && currentBestScore >= beta) || (!max && currentBestScore <= alpha)) {
-                break;
+    // searches the whole position for the lazy SMP, the results are only passed on through the scoreMap
+    @SuppressWarnings("serial")
+    private final class HelperTask extends RecursiveAction {
+        private final BitBoard board;
+        private final Player player;
+        private final int[] possibleMoves;
+        private final int maxDepth;
+
+        private HelperTask(BitBoard board, Player player, int[] possibleMoves, int maxDepth) {
+            this.board = board.copy();
+            this.player = player;
+            this.possibleMoves = possibleMoves;
+            this.maxDepth = maxDepth;
+        }
+
+        @Override
+        protected void compute() {
+            Searcher helperSearcher = borrowSearcher(board, true);
+            try {
+                helperSearcher.reset(board);
+                searchRootSequential(helperSearcher, board, player, possibleMoves, possibleMoves.length, maxDepth,
+                        Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
+            } finally {
+                idleSearchers.add(helperSearcher);
             }
         }
+    }
+
+    /*
+        A node whose younger brothers (all moves except the first one) are searched in parallel. The tasks share the
+        best score of the node, every task starts with the window of the scores which were found so far. As soon as one
+        of them causes a cutoff, all other tasks of this node (and every split below them) are cancelled.
+     */
+    private static final class SplitPoint {
+        private final SplitPoint parent;
+        private final boolean max;
+        private final float alpha;
+        private final float beta;
+
+        private float bestScore;
+        private int bestMove;
+        private volatile boolean cancelled;
+
+        private SplitPoint(SplitPoint parent, boolean max, float alpha, float beta, float bestScore, int bestMove) {
+            this.parent = parent;
+            this.max = max;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.bestScore = bestScore;
+            this.bestMove = bestMove;
+        }
+
+        // the window for the next move which is searched (the same one the sequential search would use)
+        private synchronized float childAlpha() {
+            return max ? bestScore : alpha;
+        }
 
-        BoardStorage.StateInfo boardState = new BoardStorage.StateInfo();
-        boardState.score = currentBestScore;
-        boardState.depth = depth;
+        private synchronized float childBeta() {
+            return max ? beta : bestScore;
+        }
 
-        if (currentBestScore <= oldAlpha) {
-            boardState.type = '+';
-        } else if (currentBestScore >= oldBeta) {
-            boardState.type = '-';
-        } else {
-            boardState.type = '=';
+        private synchronized void update(float score, int move) {
+            if ((max && score > bestScore) || (!max && score < bestScore)) {
+                bestScore = score;
+                bestMove = move;
+                if ((max && bestScore >= beta) || (!max && bestScore <= alpha)) {
+                    cancelled = true;
+                }
+            }
         }
 
-        saveScore(board, boardState, startingPlayer);
-        return currentBestScore;
+        // a split is also cancelled if any of the splits above it was cancelled
+        private boolean isCancelled() {
+            for (SplitPoint split = this; split != null; split = split.parent) {
+                if (split.cancelled) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 
-    private BoardStorage.StateInfo loadScore(char[][] board, Player starter) {
-        return (starter == Player.V ? scoreMapVerticalStarter.get(board) : scoreMapHorizontalStarter.get(board));
+    // searches a single younger brother of a split node on its own board copy
+    @SuppressWarnings("serial")
+    private final class SiblingTask extends RecursiveAction {
+        private final SplitPoint split;
+        private final BitBoard board;
+        private final int move;
+        private final Player currentPlayer;
+        private final Player startingPlayer;
+        private final int depth;
+        // the ply of the split node, the searcher continues from there
+        private final int ply;
+
+        private SiblingTask(SplitPoint split, BitBoard board, int move, Player currentPlayer, Player startingPlayer,
+                            int depth, int ply) {
+            this.split = split;
+            this.board = board.copy();
+            this.move = move;
+            this.currentPlayer = currentPlayer;
+            this.startingPlayer = startingPlayer;
+            this.depth = depth;
+            this.ply = ply;
+        }
+
+        @Override
+        protected void compute() {
+            if (aborted || split.isCancelled()) {
+                return;
+            }
+            Searcher taskSearcher = borrowSearcher(board, false);
+            try {
+                taskSearcher.splitPoint = split;
+                taskSearcher.reset(board, ply);
+                // the move belongs to the split node, it is counted by the searcher which searches it
+                taskSearcher.searchedMoves++;
+                taskSearcher.applyMove(board, move, currentPlayer);
+                float score = taskSearcher.minimaxAlphaBeta(
+                        board,
+                        currentPlayer.getOtherPlayer(),
+                        startingPlayer,
+                        depth - 1,
+                        split.childAlpha(),
+                        split.childBeta()
+                );
+                taskSearcher.undoMove(board, move, currentPlayer);
+                if (!taskSearcher.isStopped()) {
+                    split.update(score, move);
+                }
+            } finally {
+                taskSearcher.splitPoint = null;
+                idleSearchers.add(taskSearcher);
+            }
+        }
     }
 
-    private void saveScore(char[][] board, BoardStorage.StateInfo state, Player starter) {
-        if (starter == Player.V) {
-            scoreMapVerticalStarter.put(board, state);
-        } else {
-            scoreMapHorizontalStarter.put(board, state);
+    // moves the entered move to the first position, the order of the other moves is kept
+    private static void moveToFront(int[] moves, int moveCount, int move) {
+        for (int i = 0; i < moveCount; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
         }
     }
 
@@ -230,7 +890,7 @@ public class HardMinMax extends AI {
 
         The current approach is to assign weights to each parameter we have available and figure out the optimal values.
      */
-    private float scoreSituation(int currentDepth, BoardLayout starter, BoardLayout opponent) {
+    float scoreSituation(int currentDepth, BoardLayout starter, BoardLayout opponent) {
         if (currentDepth <= 0
                 || starter.lowerBound <= 0                              // we already lost
                 || opponent.lowerBound <= 0                             // the opponent already lost
@@ -248,26 +908,6 @@ public class HardMinMax extends AI {
             the HardMinMax each with different factors played against each other over multiple round, with the winner
             proceeding.
              */
-
-            if (factors == null) {
-                factors = new float[]{
-                        6.141892f,     // lower bound
-                        3.323705f,
-                        1.5304062f,     // upper bound
-                        2.5675583f,
-                        10.425653f,     // safe areas
-                        -15.922241f,
-                        2.0729046f,      // vuln areas
-                        -3.497818f,
-                        -3.3107972f,    // protective areas
-                        -11.012934f,
-                        -0.85778457f,    // unavailable areas
-                        5.7875576f,
-                        0.80485183f,     // unplayable areas
-                        1.9488539f
-                };
-            }
-
             return (starter.lowerBound * factors[0]
                     + opponent.lowerBound * factors[1]
                     + starter.upperBound * factors[2]
@@ -289,81 +929,626 @@ public class HardMinMax extends AI {
         return Float.NEGATIVE_INFINITY;
     }
 
-    // returns the entered board configuration with the given move applied
-    private void applyMove(char[][] board, Coordinate move, Player player) {
-        // set the first square occupied
-        board[move.getX()][move.getY()] = 'X';
+    // the factors which are used if no others were set (see scoreSituation)
+    static float[] defaultFactors() {
+        return new float[]{
+                6.141892f,     // lower bound
+                3.323705f,
+                1.5304062f,     // upper bound
+                2.5675583f,
+                10.425653f,     // safe areas
+                -15.922241f,
+                2.0729046f,      // vuln areas
+                -3.497818f,
+                -3.3107972f,    // protective areas
+                -11.012934f,
+                -0.85778457f,    // unavailable areas
+                5.7875576f,
+                0.80485183f,     // unplayable areas
+                1.9488539f
+        };
+    }
 
-        // based on the player, set the second square occupied
-        if (player == Player.V) {
-            board[move.getX()][move.getY() + 1] = 'X';
-        } else {
-            board[move.getX() + 1][move.getY()] = 'X';
+    /*
+        Everything a single thread needs to run the search: the analyser of the nodes, the move buffers and the
+        transfer object for the scoreMap. The scoreMap, the deadline and the factors are shared by all
+        searchers of this instance.
+     */
+    private final class Searcher {
+        // analyses the board of every node which isn't decided by the scoreMap or the endgame (the layouts are only
+        // used before the moves of the node are searched, so all plies share it)
+        private final BoardAnalyser analyser;
+        // keeps the analysis up to date while moves are applied and undone, only for boards which are too high for the
+        // BitmaskAnalyser and wide enough for the update to pay off (null otherwise)
+        private final IncrementalAnalyser columns;
+        // solves the independent regions of the board in the endgame, keeps the region values for the whole game
+        private final RegionSolver regionSolver;
+
+        // the moves are packed coordinates (see Coordinate.pack), every ply of the search reuses its own buffer
+        private int[][] moveBuffers = new int[32][64];
+        private int ply;
+        private int nodeCounter;
+        // counts for the SearchStats since the start of the search
+        private long nodes;
+        private long expandedNodes;
+        private long searchedMoves;
+        private long tableProbes;
+        private long tableHits;
+        private long cutoffs;
+        private long firstMoveCutoffs;
+        // helpers of the lazy SMP are stopped as soon as the main search is done
+        private boolean helper;
+        // the split this searcher is working for, its results are useless as soon as the split is cancelled
+        private SplitPoint splitPoint;
+
+        // reused for every load and save, the storage only keeps the packed values
+        private final BoardStorage.StateInfo stateInfo = new BoardStorage.StateInfo();
+        // the symmetry which turns the board of the last load or save into its canonical form
+        private int canonicalSymmetry;
+
+        // the last two moves which caused a cutoff on each ply (killer moves), -1 if there is none yet
+        private int[][] killers = new int[32][2];
+        // for each player and square: how often and how deep moves on this square caused a cutoff (history heuristic)
+        private final int[][] history;
+        private final int width;
+        private final int height;
+        // where each of the move categories of the last generated moves ends (see generateNextPossibleMoves)
+        private final int[] categoryEnds = new int[5];
+
+        private Searcher(int width, int height) {
+            this.analyser = new BoardAnalyser(width, height);
+            this.columns = height > BitmaskAnalyser.MAX_HEIGHT && width >= IncrementalAnalyser.MIN_WIDTH
+                    ? new IncrementalAnalyser(width, height)
+                    : null;
+            this.regionSolver = new RegionSolver(width, height);
+            this.history = new int[2][width * height];
+            this.width = width;
+            this.height = height;
+            for (int[] killer : killers) {
+                Arrays.fill(killer, -1);
+            }
         }
-    }
 
-    private void undoMove(char[][] board, Coordinate move, Player player) {
-        // set the first square unoccupied
-        board[move.getX()][move.getY()] = 'E';
+        // the search starts from the given board, which must not be changed by anything else while it is running
+        private void reset(BitBoard board) {
+            reset(board, 0);
+        }
 
-        // based on the player, set the second square unoccupied
-        if (player == Player.V) {
-            board[move.getX()][move.getY() + 1] = 'E';
-        } else {
-            board[move.getX() + 1][move.getY()] = 'E';
+        // same as reset, but the board is a node on the given ply of a search (the split node of a SiblingTask), so the
+        // killers and move buffers are used for the same plies as in the sequential search
+        private void reset(BitBoard board, int startPly) {
+            if (columns != null) {
+                columns.reset(board);
+            }
+            ply = startPly;
+            resetCounters();
         }
-    }
 
-    // runs an entered board analyzer or creates a new one. Returns the concatenated board cover areas.
-    private Coordinate[] generateNextPossibleMoves(char[][] board, Player player, BoardAnalyser bA, boolean include) {
-        if (bA == null) {
-            bA = new BoardAnalyser(board, true);
+        // only the counters of the running search, the ply is left alone
+        private void resetCounters() {
+            nodeCounter = 0;
+        }
+
+        private void resetStats() {
+            nodes = 0;
+            expandedNodes = 0;
+            searchedMoves = 0;
+            tableProbes = 0;
+            tableHits = 0;
+            cutoffs = 0;
+            firstMoveCutoffs = 0;
+        }
+
+        private void addStats(SearchStats stats) {
+            stats.nodes += nodes;
+            stats.expandedNodes += expandedNodes;
+            stats.searchedMoves += searchedMoves;
+            stats.tableProbes += tableProbes;
+            stats.tableHits += tableHits;
+            stats.cutoffs += cutoffs;
+            stats.firstMoveCutoffs += firstMoveCutoffs;
+        }
+
+        // the killers and the history of older searches are less and less relevant for the current position
+        private void ageMoveOrder() {
+            for (int[] killer : killers) {
+                Arrays.fill(killer, -1);
+            }
+            for (int[] squares : history) {
+                for (int i = 0; i < squares.length; i++) {
+                    squares[i] >>= 1;
+                }
+            }
         }
-        // select the required BoardLayout object
-        BoardLayout bL = (player == Player.V ? bA.vertical : bA.horizontal);
 
-        // generate a new Array with approximately the maximum size required
-        Coordinate[] outputMoves = new Coordinate[2 * bL.numProtectiveAreas()
-                + bL.numVulnAreasOne()
-                + bL.numVulnAreasTwo()
-                + bL.numSafeAreas() * 3];
         /*
-        The areas are concatenated to be filled in the following order:
+            The moves are generated in a fixed order (protect spots, vulnerable areas, safe areas), which doesn't know
+            anything about what the search already found out. Before the moves are searched, they are therefore sorted:
 
-        1. Protect spots of protective areas -> placing a tile here converts the protective area to a safe area
-        2. Vulnerable areas type II
-        3. Vulnerable areas type I
-        4. The part of protective areas which is not the protect spot
-        5. Safe areas: first the option area possibilities and then the normal safe areas
+            1. the best move which was stored for this board in the scoreMap (hash move) is always tried first
+            2. within each category, the killer moves of this ply (if enabled) come first, they caused cutoffs in
+               sibling positions
+            3. all other moves of a category are sorted by their history score (equal scores keep the generated order)
+
+            The categories themselves are never mixed up, their order is a much better guess than the history. Moving
+            the history or killer moves in front of other categories made the search slower in every test.
          */
-        int index = 0;
-        for (ProtectiveArea area : bL.protectiveAreas) {
-            outputMoves[index++] = area.getProtectSpot().getCornerUL();
+        private void orderMoves(int[] moves, int moveCount, int hashMove, Player player) {
+            int[] scores = history[player.ordinal()];
+            int start = 0;
+            for (int end : categoryEnds) {
+                for (int i = start + 1; i < end; i++) {
+                    int move = moves[i];
+                    int score = scores[square(move)];
+                    int j = i - 1;
+                    while (j >= start && scores[square(moves[j])] < score) {
+                        moves[j + 1] = moves[j];
+                        j--;
+                    }
+                    moves[j + 1] = move;
+                }
+                if (killerMoves) {
+                    int front = moveToFront(moves, end, start, killers[ply][0]);
+                    moveToFront(moves, end, front, killers[ply][1]);
+                }
+                start = end;
+            }
+            moveToFront(moves, moveCount, 0, hashMove);
         }
-        for (VulnArea area : bL.vulnAreasTwo) {
-            outputMoves[index++] = area.getCornerUL();
+
+        /*
+            Number avoidance theorem: as long as there is a region which is not a number, there is never a reason to
+            move in a region which is a number. Those moves are removed (unless no other move would be left).
+         */
+        private int avoidNumbers(int[] moves, int moveCount) {
+            int kept = 0;
+            for (int i = 0; i < moveCount; i++) {
+                if (!RegionSolver.isNumber(regionSolver.getComponentValue(regionSolver.componentOfMove(moves[i])))) {
+                    kept++;
+                }
+            }
+            if (kept == 0) {
+                return moveCount;
+            }
+            int index = 0;
+            for (int i = 0; i < moveCount; i++) {
+                int move = moves[i];
+                if (!RegionSolver.isNumber(regionSolver.getComponentValue(regionSolver.componentOfMove(move)))) {
+                    moves[index++] = move;
+                }
+            }
+            return index;
         }
-        for (VulnArea area : bL.vulnAreasOne) {
-            outputMoves[index++] = area.getCornerUL();
+
+        // moves the given move (if it's one of the moves after "front") to the front, returns the new front
+        private int moveToFront(int[] moves, int moveCount, int front, int move) {
+            if (move == -1) {
+                return front;
+            }
+            for (int i = front; i < moveCount; i++) {
+                if (moves[i] == move) {
+                    System.arraycopy(moves, front, moves, front + 1, i - front);
+                    moves[front] = move;
+                    return front + 1;
+                }
+            }
+            return front;
         }
-        for (ProtectiveArea area : bL.protectiveAreas) {
-            VulnArea[] split = area.splitIntoVulnTwo(player);
-            // always only add the part of the protective are which is NOT the protect spot
-            if (include) {
-                outputMoves[index++] = split[0].getCornerUL().equals(area.getProtectSpot().getCornerUL())
-                        ? split[1].getCornerUL()
-                        : split[0].getCornerUL();
+
+        // remembers a move which caused a cutoff, deeper searches are weighted much stronger
+        private void recordCutoff(int move, Player player, int depth) {
+            int[] killer = killers[ply];
+            if (killer[0] != move) {
+                killer[1] = killer[0];
+                killer[0] = move;
             }
+            history[player.ordinal()][square(move)] += depth * depth;
         }
-        for (SafeArea area : bL.safeAreas) {
-            if (area.getOptionSafeLower() != null) {
-                outputMoves[index++] = area.getOptionSafeLower().getCornerUL();
+
+        private int square(int move) {
+            return Coordinate.unpackX(move) * height + Coordinate.unpackY(move);
+        }
+
+        // searches the given root move and returns its score (from the point of view of the player who plays it)
+        private float searchMove(BitBoard board, int move, Player player, int maxDepth, float alpha, float beta) {
+            applyMove(board, move, player);
+            float score = minimaxAlphaBeta(
+                    board,
+                    player.getOtherPlayer(),
+                    player,
+                    maxDepth,
+                    alpha,
+                    beta
+            );
+            undoMove(board, move, player);
+            return score;
+        }
+
+        // reading the clock isn't free, so it is only done every few nodes. Once the time is up or the pondering is
+        // stopped, the search is aborted.
+        private boolean timeIsUp() {
+            if (!aborted && (ponderStopped || deadline != NO_DEADLINE
+                    && (++nodeCounter & (DEADLINE_CHECK_INTERVAL - 1)) == 0 && System.nanoTime() - deadline >= 0)) {
+                aborted = true;
+            }
+            return isStopped();
+        }
+
+        private boolean isStopped() {
+            return aborted || (helper && stopHelpers) || (splitPoint != null && splitPoint.isCancelled());
+        }
+
+        // only deep nodes with at least two younger brothers are split and only if the search runs on the pool
+        private boolean canSplit(int depth, int youngerBrothers) {
+            return parallelSearch == ParallelSearch.YOUNG_BROTHERS_WAIT
+                    && depth >= MIN_SPLIT_DEPTH
+                    && youngerBrothers >= 2
+                    && pool != null
+                    && ForkJoinTask.getPool() == pool;
+        }
+
+        /*
+            The key in efficient solution finding is reducing the unnecessary calculations in our tree. The "scoreSituation"
+            method always tests if winning is still possible and otherwise returns a low score.
+
+            Alpha-Beta-Pruning:
+                -> alpha: currently the highest score (reference for the maximising player)
+                -> beta: currently the lowest score (reference for the minimising player)
+
+                Case 1:
+                -------
+                We are currently the maximizing player. The previous player (minimizing) gave us his updated "beta"-score.
+                Only if our score is lower than the given beta score, our branch is of interest, otherwise there exists
+                another branch with a lower score and because the previous player was minimizing, he would then take the other
+                branch. This means that if our current score is higher than the beta score, we can break the loop and return.
+
+                Case 2:
+                -------
+                We are the minimizing player. The previous player was maximizing and gave the current maximum score in the
+                alpha parameter. If our "best score" (the minimum) drops below the alpha score, we can break the search and
+                return, because even though this situation would be better for us, the previous player wouldn't take our
+                branch into consideration.
+
+            This special implementation of the minimax algorithm which negates the next call with changed alpha and beta
+            values is described in the doctoral thesis of Prof. dr. H.J. van den Herik: "Memory versus Search in Games".
+            It also involves storing the values which were calculated for even higher performance. Some more ideas came
+            from the already often cited master thesis of Nathan Bullock about the game domineering. Both papers didn't
+            contain actual code or the code was not reviewed by me.
+         */
+        private float minimaxAlphaBeta(BitBoard board, Player currentPlayer, Player startingPlayer, int depth,
+                                       float alpha, float beta) {
+            float oldAlpha = alpha;
+            float oldBeta = beta;
+            nodes++;
+
+            // the returned score doesn't matter anymore, the whole search is thrown away
+            if (timeIsUp()) {
+                return 0;
+            }
+
+            // first, try to load the score from the scoreMap
+            BoardStorage.StateInfo saveState = loadScore(board, startingPlayer, currentPlayer);
+            // the state info is reused by the next load, so the stored move has to be kept here
+            int hashMove = saveState != null ? saveState.move : -1;
+
+            if (saveState != null && saveState.depth >= depth) {
+                if (saveState.type == '-' && saveState.score > alpha) {
+                    alpha = saveState.score;
+                } else if (saveState.type == '+' && saveState.score < beta) {
+                    beta = saveState.score;
+                }
+
+                if (saveState.type == '=' || alpha >= beta) {
+                    return saveState.score;
+                }
+            }
+
+            // late in the game, the board falls apart into independent regions which might already decide the game
+            boolean endgame = endgameRegions
+                    && board.getWidth() * board.getHeight() - board.occupiedCount() <= ENDGAME_EMPTY_SQUARES;
+            if (endgame) {
+                regionSolver.decompose(board);
+                double sum = regionSolver.numberSum();
+                if (RegionSolver.isNumber(sum)) {
+                    // a sum of numbers: positive is a win for V, negative for H and zero for the player who doesn't move
+                    Player winner = sum > 0 ? Player.V : (sum < 0 ? Player.H : currentPlayer.getOtherPlayer());
+                    float spareMoves = (float) Math.abs(sum);
+                    BoardStorage.StateInfo proven = stateInfo;
+                    proven.score = winner == startingPlayer ? PROVEN_WIN + spareMoves : -PROVEN_WIN - spareMoves;
+                    proven.type = '=';
+                    proven.depth = PROVEN_DEPTH;
+                    proven.move = -1;
+                    saveScore(board, proven, startingPlayer, currentPlayer);
+                    return proven.score;
+                }
+            }
+
+            // The analysis of the current board is used by both the scoring function and the possible moves generator. For
+            // boards with up to 64 rows, it works on whole columns at once (see BitmaskAnalyser). Higher boards take the
+            // columns which applyMove and undoMove kept up to date.
+            if (columns != null) {
+                analyser.analyse(board, columns);
+            } else {
+                analyser.analyse(board, false);
+            }
+            BoardLayout vertical = analyser.vertical;
+            BoardLayout horizontal = analyser.horizontal;
+            float score = scoreSituation(
+                    depth,
+                    (startingPlayer == Player.V) ? vertical : horizontal,
+                    (startingPlayer == Player.V) ? horizontal : vertical
+            );
+
+            if (score != Float.NEGATIVE_INFINITY) {
+                return score;
+            }
+
+            int moveCount = generateNextPossibleMoves(
+                    (currentPlayer == Player.V) ? vertical : horizontal,
+                    currentPlayer,
+                    false
+            );
+            int[] possibleMoves = moveBuffers[ply];
+            if (endgame && regionSolver.hasHotComponent()) {
+                moveCount = avoidNumbers(possibleMoves, moveCount);
+            }
+            orderMoves(possibleMoves, moveCount, hashMove, currentPlayer);
+            expandedNodes++;
+            int bestMove = -1;
+            float nextBestScore;
+
+            // if true -> current player tries to maximize the score
+            boolean max = (currentPlayer == startingPlayer);
+
+            // never go down / up with the score, but set the given best to be the lowest score for the "current best"
+            float currentBestScore = max ? alpha : beta;
+
+            // goes through all possible moves which are basically just placing tiles in all calculated board cover
+            // regions. These regions are generated using the board analysis.
+            for (int i = 0; i < moveCount; i++) {
+                int move = possibleMoves[i];
+                float childAlpha = max ? currentBestScore : alpha;
+                float childBeta = max ? beta : currentBestScore;
+                searchedMoves++;
+                applyMove(board, move, currentPlayer);
+                if (principalVariationSearch && i > 0) {
+                    /*
+                    Principal variation search: the first move is expected to be the best one (see the move order),
+                    so for all other moves it's enough to prove that they are not better than the current best score.
+                    This is done with a null window right at the current best score, which cuts off much earlier than
+                    the full window. Only if a move turns out to be better, it's searched again with the full window.
+                     */
+                    nextBestScore = minimaxAlphaBeta(
+                            board,
+                            currentPlayer.getOtherPlayer(),
+                            startingPlayer,
+                            depth - 1,
+                            max ? childAlpha : Math.nextDown(childBeta),
+                            max ? Math.nextUp(childAlpha) : childBeta
+                    );
+                    if (nextBestScore > childAlpha && nextBestScore < childBeta && !isStopped()) {
+                        nextBestScore = minimaxAlphaBeta(
+                                board,
+                                currentPlayer.getOtherPlayer(),
+                                startingPlayer,
+                                depth - 1,
+                                childAlpha,
+                                childBeta
+                        );
+                    }
+                } else {
+                    nextBestScore = minimaxAlphaBeta(
+                            board,
+                            currentPlayer.getOtherPlayer(),
+                            startingPlayer,
+                            depth - 1,
+                            childAlpha,
+                            childBeta
+                    );
+                }
+                undoMove(board, move, currentPlayer);
+
+                // incomplete scores must never end up in the scoreMap
+                if (isStopped()) {
+                    return 0;
+                }
+
+                // either we try to maximize the score, then update if the new score is higher than the current best
+                // or we try to minimize the score and therefore only update if the new score is lower than the current best
+                if ((max && nextBestScore > currentBestScore) || (!max && nextBestScore < currentBestScore)) {
+                    currentBestScore = nextBestScore;
+                    bestMove = move;
+                }
+
+                // this is the important alpha-beta-pruning improvement over the classic minimax-algorithm. The details
+                // of the implementations are written in the comment above this method.
+                if ((max && currentBestScore >= beta) || (!max && currentBestScore <= alpha)) {
+                    recordCutoff(move, currentPlayer, depth);
+                    cutoffs++;
+                    if (i == 0) {
+                        firstMoveCutoffs++;
+                    }
+                    break;
+                }
+
+                // Young Brothers Wait: as soon as the first move is searched, all other moves are searched in parallel
+                if (i == 0 && canSplit(depth, moveCount - 1)) {
+                    SplitPoint split = new SplitPoint(splitPoint, max, alpha, beta, currentBestScore, bestMove);
+                    SiblingTask[] siblings = new SiblingTask[moveCount - 1];
+                    for (int j = 1; j < moveCount; j++) {
+                        siblings[j - 1] = new SiblingTask(split, board, possibleMoves[j], currentPlayer, startingPlayer,
+                                depth, ply);
+                    }
+                    ForkJoinTask.invokeAll(siblings);
+                    if (isStopped()) {
+                        return 0;
+                    }
+                    currentBestScore = split.bestScore;
+                    bestMove = split.bestMove;
+                    if (split.cancelled) {
+                        recordCutoff(bestMove, currentPlayer, depth);
+                        cutoffs++;
+                    }
+                    break;
+                }
+            }
+
+            BoardStorage.StateInfo boardState = stateInfo;
+            boardState.score = currentBestScore;
+            boardState.depth = depth;
+            boardState.move = bestMove;
+
+            if (currentBestScore <= oldAlpha) {
+                boardState.type = '+';
+            } else if (currentBestScore >= oldBeta) {
+                boardState.type = '-';
+            } else {
+                boardState.type = '=';
+            }
+
+            saveScore(board, boardState, startingPlayer, currentPlayer);
+            return currentBestScore;
+        }
+
+        // symmetric boards may share one entry of the scoreMap (see canonicalKey)
+        private BoardStorage.StateInfo loadScore(BitBoard board, Player starter, Player toMove) {
+            long key = canonicalKey(board, starter, toMove);
+            tableProbes++;
+            if (!scoreMap.get(key, stateInfo)) {
+                return null;
+            }
+            tableHits++;
+            if (stateInfo.move != -1 && canonicalSymmetry != Symmetry.IDENTITY) {
+                // the move was stored for the canonical board, so it has to be transformed back
+                boolean transposed = Symmetry.swapsPlayers(canonicalSymmetry);
+                stateInfo.move = Symmetry.transformMove(
+                        Symmetry.inverse(canonicalSymmetry),
+                        stateInfo.move,
+                        Symmetry.transformPlayer(canonicalSymmetry, toMove),
+                        transposed ? board.getHeight() : board.getWidth(),
+                        transposed ? board.getWidth() : board.getHeight()
+                );
+            }
+            return stateInfo;
+        }
+
+        private void saveScore(BitBoard board, BoardStorage.StateInfo state, Player starter, Player toMove) {
+            long key = canonicalKey(board, starter, toMove);
+            if (state.move != -1 && canonicalSymmetry != Symmetry.IDENTITY) {
+                state.move = Symmetry.transformMove(canonicalSymmetry, state.move, toMove, board.getWidth(),
+                        board.getHeight());
+            }
+            scoreMap.put(key, state);
+        }
+
+        /*
+            Symmetric positions (see Symmetry) have the same game value, but not the same score: the evaluation scans
+            the board in a fixed direction, so the areas it finds and therefore the scores of a position and its mirror
+            image usually differ. Sharing the entries lets a position use the score and the bounds of one of its
+            variants, which is only an approximation. This is why it is optional (symmetricPositions). With it, all
+            variants share the entry of the variant with the smallest key. The scores depend on the starting player
+            and the player who moves next, so both are mixed into the key as well. For the transposed variants, both
+            roles are swapped just like the pieces. The symmetry of the chosen variant is kept in canonicalSymmetry,
+            because the stored moves belong to the canonical board.
+         */
+        private long canonicalKey(BitBoard board, Player starter, Player toMove) {
+            long canonical = board.getKey() ^ Zobrist.starterKey(starter) ^ Zobrist.sideToMoveKey(toMove);
+            canonicalSymmetry = Symmetry.IDENTITY;
+            if (!symmetricPositions) {
+                return canonical;
+            }
+            for (int symmetry = Symmetry.IDENTITY + 1; symmetry < board.symmetryCount(); symmetry++) {
+                long key = board.getKey(symmetry)
+                        ^ Zobrist.starterKey(Symmetry.transformPlayer(symmetry, starter))
+                        ^ Zobrist.sideToMoveKey(Symmetry.transformPlayer(symmetry, toMove));
+                if (Long.compareUnsigned(key, canonical) < 0) {
+                    canonical = key;
+                    canonicalSymmetry = symmetry;
+                }
+            }
+            return canonical;
+        }
+
+        // returns the entered board configuration with the given move applied
+        private void applyMove(BitBoard board, int move, Player player) {
+            // set both squares occupied, the second one is chosen based on the player
+            board.place(Coordinate.unpackX(move), Coordinate.unpackY(move), player);
+            if (columns != null) {
+                columns.push(board, move, player);
+            }
+            ply++;
+        }
+
+        private void undoMove(BitBoard board, int move, Player player) {
+            // set both squares unoccupied again
+            board.remove(Coordinate.unpackX(move), Coordinate.unpackY(move), player);
+            if (columns != null) {
+                columns.pop();
+            }
+            ply--;
+        }
+
+        // writes the concatenated board cover areas into the move buffer of the current ply and returns their number
+        private int generateNextPossibleMoves(BoardLayout bL, Player player, boolean include) {
+            // make sure the buffer has approximately the maximum size required
+            int maxMoves = 2 * bL.numProtectiveAreas()
+                    + bL.numVulnAreasOne()
+                    + bL.numVulnAreasTwo()
+                    + bL.numSafeAreas() * 3;
+            if (ply >= moveBuffers.length) {
+                // a searcher of a SiblingTask may start deep in the tree, so doubling once isn't always enough
+                moveBuffers = Arrays.copyOf(moveBuffers, Math.max(moveBuffers.length * 2, ply + 1));
+                int oldLength = killers.length;
+                killers = Arrays.copyOf(killers, moveBuffers.length);
+                for (int i = oldLength; i < killers.length; i++) {
+                    killers[i] = new int[]{-1, -1};
+                }
+            }
+            if (moveBuffers[ply] == null || moveBuffers[ply].length < maxMoves) {
+                moveBuffers[ply] = new int[Math.max(maxMoves, 64)];
+            }
+            int[] outputMoves = moveBuffers[ply];
+            /*
+            The areas are concatenated to be filled in the following order:
+
+            1. Protect spots of protective areas -> placing a tile here converts the protective area to a safe area
+            2. Vulnerable areas type II
+            3. Vulnerable areas type I
+            4. The part of protective areas which is not the protect spot
+            5. Safe areas: first the option area possibilities and then the normal safe areas
+             */
+            int index = 0;
+            for (int i = 0; i < bL.protectiveAreas.size(); i++) {
+                outputMoves[index++] = ProtectiveArea.getProtectSpot(bL.protectiveAreas.get(i), player);
+            }
+            categoryEnds[0] = index;
+            for (int i = 0; i < bL.vulnAreasTwo.size(); i++) {
+                outputMoves[index++] = Area.getCornerUL(bL.vulnAreasTwo.get(i));
+            }
+            categoryEnds[1] = index;
+            for (int i = 0; i < bL.vulnAreasOne.size(); i++) {
+                outputMoves[index++] = Area.getCornerUL(bL.vulnAreasOne.get(i));
+            }
+            categoryEnds[2] = index;
+            // always only add the part of the protective are which is NOT the protect spot
+            if (include) {
+                for (int i = 0; i < bL.protectiveAreas.size(); i++) {
+                    outputMoves[index++] = ProtectiveArea.getOtherHalf(bL.protectiveAreas.get(i), player);
+                }
             }
-            if (area.getOptionSafeUpper() != null) {
-                outputMoves[index++] = area.getOptionSafeUpper().getCornerUL();
+            categoryEnds[3] = index;
+            for (int i = 0; i < bL.safeAreas.size(); i++) {
+                int area = bL.safeAreas.get(i);
+                if (SafeArea.hasOptionSafeLower(area)) {
+                    outputMoves[index++] = SafeArea.getOptionSafeLower(area, player);
+                }
+                if (SafeArea.hasOptionSafeUpper(area)) {
+                    outputMoves[index++] = SafeArea.getOptionSafeUpper(area, player);
+                }
+                if (include) outputMoves[index++] = Area.getCornerUL(area);
             }
-            if (include) outputMoves[index++] = area.getCornerUL();
+            categoryEnds[4] = index;
+            return index;
         }
-        return Arrays.copyOf(outputMoves, index);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,426 @@
+package ai;
+
+import java.util.Arrays;
+
+/*
+    Keeps the results of the char scan (see BoardAnalyser) up to date while the search applies and undoes moves, instead
+    of analysing the whole board again for every node. It is only used for boards with more than 64 rows: on all other
+    boards, the BitmaskAnalyser analyses the whole board faster than the columns of the char boards can be updated (and
+    see MIN_WIDTH for narrow boards).
+
+    All steps of the analysis scan the board column by column (x) and the decisions for one column only depend on the
+    squares of the neighbouring columns and on the areas which were found in the two columns before. A new piece can
+    therefore only change the results from two columns in front of it onwards. From there on, every step is repeated
+    column by column until the results are the same as before the move again (and the columns which are read further
+    on weren't changed by the move). All columns after that point keep their results. This gives exactly the same
+    areas (in the same order) as a full analyseBoard() of the new board.
+
+    Only the columns which are scanned again are touched: the char column, the column results or the count which is
+    replaced goes on an undo log and a new one is taken from a pool. Undoing a move puts the old ones back, so nothing
+    is copied for the columns which stay the same. Once the deepest ply was reached, no objects are created anymore.
+ */
+final class IncrementalAnalyser {
+    // a move scans at least four columns of each player again, so on narrower boards the update is hardly less work
+    // than analysing the whole board, but it has to be done for every move instead of only for the evaluated nodes
+    static final int MIN_WIDTH = 8;
+
+    private static final Player[] PLAYERS = Player.values();
+
+    // the kinds of values which are replaced during an update, each column of each player is one slot per kind
+    private static final int SAFE_CLONE = 0;
+    private static final int VULN_CLONE = 1;
+    private static final int COLUMN = 2;
+    private static final int UNAVAILABLE = 3;
+
+    private final int width;
+    private final int height;
+
+    // for each player (ordinal) and column: the board copy after the safe and protective areas and after the vulnerable
+    // areas were marked, the areas with the upper left corner in the column and the squares the player can't use
+    private final char[][][] clonesAfterSafe;
+    private final char[][][] clonesAfterVuln;
+    private final BoardLayout[][] columns;
+    private final int[][] unavailable;
+
+    // the undo log: the slot and the value it had before the update (the log index is -1 if the slot was restored)
+    private int[] logSlots = new int[64];
+    private Object[] logValues = new Object[64];
+    private int[] logCounts = new int[64];
+    private int logSize;
+    // where the entries of each pushed move start
+    private int[] plyStarts = new int[32];
+    private int ply;
+
+    // the update which replaced each slot last and the log entry of the old value, every update has its own number
+    private final int[] replacedIn;
+    private final int[] logIndex;
+    private int updates;
+
+    // the replaced values which can be used again
+    private char[][] freeClones = new char[16][];
+    private int freeCloneCount;
+    private final BoardLayout[][] freeColumns = new BoardLayout[2][16];
+    private final int[] freeColumnCounts = new int[2];
+
+    // temporary storage for the protective areas which are checked for adjacency
+    private final AreaList neighbours = new AreaList(20);
+
+    IncrementalAnalyser(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.clonesAfterSafe = new char[2][width][height];
+        this.clonesAfterVuln = new char[2][width][height];
+        this.columns = new BoardLayout[2][width];
+        this.unavailable = new int[2][width];
+        for (Player player : PLAYERS) {
+            for (int x = 0; x < width; x++) {
+                columns[player.ordinal()][x] = new BoardLayout(player);
+            }
+        }
+        this.replacedIn = new int[4 * 2 * width];
+        this.logIndex = new int[4 * 2 * width];
+        Arrays.fill(replacedIn, -1);
+    }
+
+    // analyses the given board completely, all previously pushed moves are forgotten
+    void reset(BitBoard board) {
+        while (ply > 0) {
+            pop();
+        }
+        updates++;
+        update(board, 0, width - 1, false);
+    }
+
+    // updates the analysis after the given move was applied to the board
+    void push(BitBoard board, int move, Player player) {
+        if (++ply == plyStarts.length) {
+            plyStarts = Arrays.copyOf(plyStarts, plyStarts.length * 2);
+        }
+        plyStarts[ply] = logSize;
+        updates++;
+
+        int x = Coordinate.unpackX(move);
+        update(board, x, player == Player.H ? x + 1 : x, true);
+    }
+
+    // goes back to the analysis of the board before the last pushed move
+    void pop() {
+        for (int i = logSize - 1; i >= plyStarts[ply]; i--) {
+            if (logSlots[i] != -1) {
+                restore(logSlots[i], i);
+            }
+        }
+        logSize = plyStarts[ply];
+        ply--;
+    }
+
+    // writes the areas of all columns into the layouts, which gives the same order as a scan over the whole board (the
+    // bounds are not calculated)
+    void assemble(BitBoard board, BoardLayout vertical, BoardLayout horizontal) {
+        assemble(board, vertical);
+        assemble(board, horizontal);
+    }
+
+    private void assemble(BitBoard board, BoardLayout layout) {
+        int p = layout.player.ordinal();
+        layout.reset();
+        for (int x = 0; x < width; x++) {
+            BoardLayout column = columns[p][x];
+            append(column.protectiveAreas, layout.protectiveAreas);
+            append(column.safeAreas, layout.safeAreas);
+            append(column.vulnAreasOne, layout.vulnAreasOne);
+            append(column.vulnAreasTwo, layout.vulnAreasTwo);
+            append(column.vulnAreasProtectedOne, layout.vulnAreasProtectedOne);
+            append(column.vulnAreasProtectedTwo, layout.vulnAreasProtectedTwo);
+            append(column.optionAreas, layout.optionAreas);
+            layout.unavailableSquares += unavailable[p][x];
+        }
+        layout.startAvailableSquares = width * height - board.occupiedCount();
+    }
+
+    // the board changed in the columns first to last (both inclusive), without "compare" every column is scanned
+    private void update(BitBoard board, int first, int last, boolean compare) {
+        int countFirst = Math.max(0, first - 1);
+        int countLast = Math.min(width - 1, last + 1);
+
+        for (Player player : PLAYERS) {
+            int safeFirst = Math.max(0, first - 2);
+            int safeLast = updateSafeAndProtective(board, player, safeFirst, last, compare);
+            updateOptions(player, Math.max(0, safeFirst - 2), Math.min(width - 1, safeLast + 2));
+
+            int vulnFirst = Math.max(0, safeFirst - 1);
+            int vulnLast = updateVuln(player, vulnFirst, safeLast, compare);
+
+            countFirst = Math.min(countFirst, vulnFirst);
+            countLast = Math.max(countLast, vulnLast);
+        }
+
+        // the unavailable squares of one player depend on the analysed board of the opponent
+        int h = Player.H.ordinal();
+        int v = Player.V.ordinal();
+        for (int x = countFirst; x <= countLast; x++) {
+            setUnavailable(h, x, BoardAnalyser.countUnavailableSquares(board, clonesAfterVuln[v], x, Player.H));
+            setUnavailable(v, x, BoardAnalyser.countUnavailableSquares(board, clonesAfterVuln[h], x, Player.V));
+        }
+    }
+
+    /*
+        Repeats the search for safe and protective areas from column "first" onwards and returns the last column which
+        had to be scanned. The decisions for a column read the squares from one column before up to two columns after it.
+     */
+    private int updateSafeAndProtective(BitBoard board, Player player, int first, int lastChanged, boolean compare) {
+        int p = player.ordinal();
+        char[][] clone = clonesAfterSafe[p];
+
+        // the scanned columns start as the plain board, only the areas of the column before reach into them
+        for (int x = first; x < Math.min(width, first + 3); x++) {
+            board.fill(writableClone(SAFE_CLONE, p, x), x);
+        }
+        if (first > 0) {
+            markSafeAndProtectiveSpill(clone, columns[p][first - 1], first);
+        }
+
+        boolean sameBefore = false;
+        for (int x = first; x < width; x++) {
+            if (x > first && x + 2 < width) {
+                board.fill(writableClone(SAFE_CLONE, p, x + 2), x + 2);
+            }
+
+            neighbours.clear();
+            if (x >= 2) append(columns[p][x - 2].protectiveAreas, neighbours);
+            if (x >= 1) append(columns[p][x - 1].protectiveAreas, neighbours);
+
+            BoardLayout column = writableColumn(p, x, false);
+            BoardAnalyser.scanSafeAndProtectiveAreas(board, clone, x, column, neighbours);
+            if (!compare) {
+                continue;
+            }
+            // the safe areas are compared without their options, those are only added in the next step
+            BoardLayout before = previousColumn(p, x);
+            boolean same = sameAreas(column.safeAreas, before.safeAreas, true)
+                    && sameAreas(column.protectiveAreas, before.protectiveAreas, false);
+            if (same && sameBefore && x > lastChanged && x > first) {
+                // the rest of the board is exactly the same as before
+                revertAfter(SAFE_CLONE, p, x);
+                return x;
+            }
+            sameBefore = same;
+        }
+        return width - 1;
+    }
+
+    // the option areas of the safe areas in the given columns are searched again
+    private void updateOptions(Player player, int first, int last) {
+        int p = player.ordinal();
+        for (int x = first; x <= last; x++) {
+            if (columns[p][x].safeAreas.size() == 0) {
+                continue;
+            }
+            BoardLayout column = writableColumn(p, x, true);
+            column.optionAreas.clear();
+            for (int i = 0; i < column.safeAreas.size(); i++) {
+                column.safeAreas.set(i, Area.getCornerUL(column.safeAreas.get(i)));
+                BoardAnalyser.scanOptionAreas(clonesAfterSafe[p], i, column);
+            }
+        }
+    }
+
+    /*
+        Repeats the search for vulnerable areas from column "first" onwards and returns the last column which had to be
+        scanned. The decisions for a column read the squares from one column before up to one column after it.
+     */
+    private int updateVuln(Player player, int first, int lastChanged, boolean compare) {
+        int p = player.ordinal();
+        char[][] clone = clonesAfterVuln[p];
+        char[][] source = clonesAfterSafe[p];
+
+        for (int x = first; x < Math.min(width, first + 2); x++) {
+            System.arraycopy(source[x], 0, writableClone(VULN_CLONE, p, x), 0, height);
+        }
+        if (first > 0 && player == Player.H) {
+            markVulnSpill(clone, columns[p][first - 1], first);
+        }
+
+        boolean sameBefore = false;
+        for (int x = first; x < width; x++) {
+            if (x > first && x + 1 < width) {
+                System.arraycopy(source[x + 1], 0, writableClone(VULN_CLONE, p, x + 1), 0, height);
+            }
+
+            BoardLayout column = writableColumn(p, x, true);
+            column.vulnAreasOne.clear();
+            column.vulnAreasTwo.clear();
+            column.vulnAreasProtectedOne.clear();
+            column.vulnAreasProtectedTwo.clear();
+            BoardAnalyser.scanVulnAreas(clone, x, column);
+            if (!compare) {
+                continue;
+            }
+            boolean same = sameVulnAreas(column, previousColumn(p, x));
+            if (same && sameBefore && x > lastChanged && x > first) {
+                revertAfter(VULN_CLONE, p, x);
+                return x;
+            }
+            sameBefore = same;
+        }
+        return width - 1;
+    }
+
+    // the char column which the current update may change, the old one is logged the first time
+    private char[] writableClone(int kind, int p, int x) {
+        char[][] clones = kind == SAFE_CLONE ? clonesAfterSafe[p] : clonesAfterVuln[p];
+        int slot = slot(kind, p, x);
+        if (ply == 0 || replacedIn[slot] == updates) {
+            return clones[x];
+        }
+        log(slot, clones[x], 0);
+        clones[x] = freeCloneCount > 0 ? freeClones[--freeCloneCount] : new char[height];
+        return clones[x];
+    }
+
+    // the column results which the current update may change, they start empty or (with "keep") as the old ones
+    private BoardLayout writableColumn(int p, int x, boolean keep) {
+        int slot = slot(COLUMN, p, x);
+        BoardLayout column = columns[p][x];
+        if (ply == 0 || replacedIn[slot] == updates) {
+            if (!keep) {
+                column.clearAreas();
+            }
+            return column;
+        }
+        log(slot, column, 0);
+        BoardLayout replacement = freeColumnCounts[p] > 0
+                ? freeColumns[p][--freeColumnCounts[p]]
+                : new BoardLayout(PLAYERS[p]);
+        replacement.clearAreas();
+        if (keep) {
+            append(column.protectiveAreas, replacement.protectiveAreas);
+            append(column.safeAreas, replacement.safeAreas);
+            append(column.vulnAreasOne, replacement.vulnAreasOne);
+            append(column.vulnAreasTwo, replacement.vulnAreasTwo);
+            append(column.vulnAreasProtectedOne, replacement.vulnAreasProtectedOne);
+            append(column.vulnAreasProtectedTwo, replacement.vulnAreasProtectedTwo);
+            append(column.optionAreas, replacement.optionAreas);
+        }
+        columns[p][x] = replacement;
+        return replacement;
+    }
+
+    private void setUnavailable(int p, int x, int count) {
+        int slot = slot(UNAVAILABLE, p, x);
+        if (ply > 0 && replacedIn[slot] != updates) {
+            log(slot, null, unavailable[p][x]);
+        }
+        unavailable[p][x] = count;
+    }
+
+    // the column results before the current update (only called while a move is pushed)
+    private BoardLayout previousColumn(int p, int x) {
+        int slot = slot(COLUMN, p, x);
+        return replacedIn[slot] == updates ? (BoardLayout) logValues[logIndex[slot]] : columns[p][x];
+    }
+
+    private int slot(int kind, int p, int x) {
+        return (kind * 2 + p) * width + x;
+    }
+
+    private void log(int slot, Object value, int count) {
+        if (logSize == logSlots.length) {
+            logSlots = Arrays.copyOf(logSlots, logSize * 2);
+            logValues = Arrays.copyOf(logValues, logSize * 2);
+            logCounts = Arrays.copyOf(logCounts, logSize * 2);
+        }
+        logSlots[logSize] = slot;
+        logValues[logSize] = value;
+        logCounts[logSize] = count;
+        replacedIn[slot] = updates;
+        logIndex[slot] = logSize++;
+    }
+
+    // the columns after x which were already replaced by the current update get their old values back
+    private void revertAfter(int kind, int p, int x) {
+        for (int next = x + 1; next < width && replacedIn[slot(kind, p, next)] == updates; next++) {
+            int slot = slot(kind, p, next);
+            int index = logIndex[slot];
+            restore(slot, index);
+            logSlots[index] = -1;
+            replacedIn[slot] = -1;
+        }
+    }
+
+    // puts the logged value back into its slot, the replacing value goes back to the pool
+    private void restore(int slot, int index) {
+        int kind = slot / (2 * width);
+        int p = slot / width % 2;
+        int x = slot % width;
+        Object old = logValues[index];
+        logValues[index] = null;
+
+        if (kind == SAFE_CLONE || kind == VULN_CLONE) {
+            char[][] clones = kind == SAFE_CLONE ? clonesAfterSafe[p] : clonesAfterVuln[p];
+            if (freeCloneCount == freeClones.length) {
+                freeClones = Arrays.copyOf(freeClones, freeCloneCount * 2);
+            }
+            freeClones[freeCloneCount++] = clones[x];
+            clones[x] = (char[]) old;
+        } else if (kind == COLUMN) {
+            if (freeColumnCounts[p] == freeColumns[p].length) {
+                freeColumns[p] = Arrays.copyOf(freeColumns[p], freeColumnCounts[p] * 2);
+            }
+            freeColumns[p][freeColumnCounts[p]++] = columns[p][x];
+            columns[p][x] = (BoardLayout) old;
+        } else {
+            unavailable[p][x] = logCounts[index];
+        }
+    }
+
+    // the safe and protective areas of the column before the given one also cover squares of this column
+    private static void markSafeAndProtectiveSpill(char[][] clone, BoardLayout before, int x) {
+        if (before.player == Player.H) {
+            for (int i = 0; i < before.safeAreas.size(); i++) {
+                clone[x][Area.getY(before.safeAreas.get(i))] = 'S';
+            }
+        }
+        for (int i = 0; i < before.protectiveAreas.size(); i++) {
+            int y = Area.getY(before.protectiveAreas.get(i));
+            clone[x][y] = 'P';
+            clone[x][y + 1] = 'P';
+        }
+    }
+
+    // only the horizontal vulnerable areas reach into the next column
+    private static void markVulnSpill(char[][] clone, BoardLayout before, int x) {
+        for (int i = 0; i < before.vulnAreasOne.size(); i++) {
+            clone[x][Area.getY(before.vulnAreasOne.get(i))] = 'D';
+        }
+        for (int i = 0; i < before.vulnAreasTwo.size(); i++) {
+            clone[x][Area.getY(before.vulnAreasTwo.get(i))] = 'D';
+        }
+    }
+
+    private static void append(AreaList from, AreaList to) {
+        for (int i = 0; i < from.size(); i++) {
+            to.add(from.get(i));
+        }
+    }
+
+    // compares the areas of both lists, "corners" only compares the upper left corners
+    private static boolean sameAreas(AreaList a, AreaList b, boolean corners) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (corners ? Area.getCornerUL(a.get(i)) != Area.getCornerUL(b.get(i)) : a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameVulnAreas(BoardLayout a, BoardLayout b) {
+        return sameAreas(a.vulnAreasOne, b.vulnAreasOne, false)
+                && sameAreas(a.vulnAreasTwo, b.vulnAreasTwo, false)
+                && sameAreas(a.vulnAreasProtectedOne, b.vulnAreasProtectedOne, false)
+                && sameAreas(a.vulnAreasProtectedTwo, b.vulnAreasProtectedTwo, false);
+    }
+}
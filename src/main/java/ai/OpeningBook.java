@@ -0,0 +1,210 @@
+package ai;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+    The best moves of the first plies of a game, found by deep searches in advance. On an almost empty board the search
+    is the most expensive and at the same time the least deep, so these moves are calculated once with a lot of time
+    and then only looked up.
+
+    The book is a file which is mapped into memory (read-only, it doesn't use any heap). It contains the entries sorted
+    by key, so a lookup is a binary search:
+
+        header:  magic (int) | board width (int) | board height (int) | entry count (int)
+        entries: key (long) | move (int, packed coordinate)
+
+    Symmetric positions (see Symmetry) share one entry: the key is the smallest one of all variants and the move
+    belongs to that variant. Unlike the scores of the search, a move stays just as good in a mirrored position.
+
+    The book is generated offline with the main method of this class. For each player, the book player gets one
+    searched move in each position and every possible reply of the opponent is followed, up to the given number of
+    plies. This covers every game the book player can get into, no matter what the opponent plays.
+ */
+public final class OpeningBook {
+    private static final int MAGIC = 0x444F4D42;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 12;
+
+    private final MappedByteBuffer buffer;
+    private final int width;
+    private final int height;
+    private final int entryCount;
+
+    private OpeningBook(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.width = buffer.getInt(4);
+        this.height = buffer.getInt(8);
+        this.entryCount = buffer.getInt(12);
+    }
+
+    public static OpeningBook open(Path file) throws IOException {
+        // the mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("not an opening book: " + file);
+            }
+            return new OpeningBook(buffer);
+        }
+    }
+
+    public int size() {
+        return entryCount;
+    }
+
+    // the book move for the given position, null if the position is not in the book
+    public Coordinate lookup(BitBoard board, Player player) {
+        if (board.getWidth() != width || board.getHeight() != height) {
+            return null;
+        }
+        int symmetry = canonicalSymmetry(board, player);
+        long key = key(board, player, symmetry);
+
+        // binary search, only absolute reads so the buffer can be used by all threads at once
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleKey = buffer.getLong(HEADER_BYTES + middle * ENTRY_BYTES);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                // the move was stored for the canonical board, so it has to be transformed back
+                int stored = buffer.getInt(HEADER_BYTES + middle * ENTRY_BYTES + 8);
+                boolean transposed = Symmetry.swapsPlayers(symmetry);
+                int move = Symmetry.transformMove(Symmetry.inverse(symmetry), stored,
+                        Symmetry.transformPlayer(symmetry, player),
+                        transposed ? height : width, transposed ? width : height);
+                int x = Coordinate.unpackX(move);
+                int y = Coordinate.unpackY(move);
+                // a key collision must never lead to an invalid move
+                return board.canPlace(x, y, player) ? new Coordinate(x, y) : null;
+            }
+        }
+        return null;
+    }
+
+    // the key of the position transformed with the given symmetry, the roles of V and H are swapped when transposing
+    private static long key(BitBoard board, Player player, int symmetry) {
+        return board.getKey(symmetry) ^ Zobrist.sideToMoveKey(Symmetry.transformPlayer(symmetry, player));
+    }
+
+    // the symmetry with the smallest key
+    private static int canonicalSymmetry(BitBoard board, Player player) {
+        int best = Symmetry.IDENTITY;
+        for (int symmetry = 1; symmetry < board.symmetryCount(); symmetry++) {
+            if (key(board, player, symmetry) < key(board, player, best)) {
+                best = symmetry;
+            }
+        }
+        return best;
+    }
+
+    /*
+        Usage: OpeningBook <file> [plies] [seconds per move] [width] [height]
+
+        The number of positions grows by the number of possible moves every two plies, so more than 4 plies are only
+        feasible with a short time per move.
+     */
+    public static void main(String[] args) throws IOException {
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Duration budget = Duration.ofMillis((long) (1000 * (args.length > 2 ? Double.parseDouble(args[2]) : 5)));
+        int width = args.length > 3 ? Integer.parseInt(args[3]) : 13;
+        int height = args.length > 4 ? Integer.parseInt(args[4]) : width;
+        generate(Paths.get(args[0]), width, height, plies, budget);
+    }
+
+    public static void generate(Path file, int width, int height, int plies, Duration budget) throws IOException {
+        HardMinMax engine = new HardMinMax(new BoardStorage(BoardStorage.DEFAULT_SIZE_MB));
+        Map<Long, Integer> moves = new HashMap<>();
+        for (Player bookPlayer : Player.values()) {
+            // V always starts the game
+            expand(engine, new BitBoard(width, height), Player.V, bookPlayer, plies, budget, moves, new HashSet<>());
+        }
+
+        long[] keys = new long[moves.size()];
+        int i = 0;
+        for (long key : moves.keySet()) {
+            keys[i++] = key;
+        }
+        Arrays.sort(keys);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) keys.length * ENTRY_BYTES);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, width);
+            buffer.putInt(8, height);
+            buffer.putInt(12, keys.length);
+            for (i = 0; i < keys.length; i++) {
+                buffer.putLong(HEADER_BYTES + i * ENTRY_BYTES, keys[i]);
+                buffer.putInt(HEADER_BYTES + i * ENTRY_BYTES + 8, moves.get(keys[i]));
+            }
+            buffer.force();
+        }
+    }
+
+    // adds the book moves of this position and all positions after it (visited contains the keys of the positions
+    // whose replies were already followed, so symmetric positions are only expanded once)
+    private static void expand(HardMinMax engine, BitBoard board, Player player, Player bookPlayer, int plies,
+                               Duration budget, Map<Long, Integer> moves, Set<Long> visited) {
+        if (plies == 0) {
+            return;
+        }
+        int symmetry = canonicalSymmetry(board, player);
+        long key = key(board, player, symmetry);
+        if (!visited.add(key)) {
+            return;
+        }
+
+        if (player == bookPlayer) {
+            Integer stored = moves.get(key);
+            int move;
+            if (stored == null) {
+                Coordinate best = engine.searchMove(board, player, budget);
+                if (best == null) {
+                    return;
+                }
+                move = best.pack();
+                moves.put(key, Symmetry.transformMove(symmetry, move, player, board.getWidth(), board.getHeight()));
+                System.out.println(moves.size() + " book moves, " + player + " plays " + best);
+            } else {
+                // a symmetric position was already searched for the other book player
+                boolean transposed = Symmetry.swapsPlayers(symmetry);
+                move = Symmetry.transformMove(Symmetry.inverse(symmetry), stored,
+                        Symmetry.transformPlayer(symmetry, player),
+                        transposed ? board.getHeight() : board.getWidth(),
+                        transposed ? board.getWidth() : board.getHeight());
+            }
+            int x = Coordinate.unpackX(move);
+            int y = Coordinate.unpackY(move);
+            board.place(x, y, player);
+            expand(engine, board, player.getOtherPlayer(), bookPlayer, plies - 1, budget, moves, visited);
+            board.remove(x, y, player);
+        } else {
+            for (int x = 0; x < board.getWidth(); x++) {
+                for (int y = 0; y < board.getHeight(); y++) {
+                    if (board.canPlace(x, y, player)) {
+                        board.place(x, y, player);
+                        expand(engine, board, player.getOtherPlayer(), bookPlayer, plies - 1, budget, moves, visited);
+                        board.remove(x, y, player);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,11 +1,9 @@
 package ai;
 
-public class OptionArea extends Area {
-    private final int weight;
+// option areas are single squares, they are stored as packed ints (see Area) with their weight as the additional info
+public final class OptionArea {
 
-    public OptionArea(int startX, int startY, int endX, int endY, int type) {
-        super(startX, startY, endX, endY);
-        this.weight = type;
+    private OptionArea() {
     }
 
     /*
@@ -24,7 +22,8 @@ public class OptionArea extends Area {
       -> 2
      */
 
-    public static OptionArea getOptionArea(char[][] board, Player player, int x, int y) {
+    // returns the packed option area or -1 if the square isn't an option area
+    public static int getOptionArea(char[][] board, Player player, int x, int y) {
         // minimum count for optionArea
         int count = 1;
 
@@ -32,7 +31,7 @@ public class OptionArea extends Area {
             // a 0-OptionArea
             if (board[x][y] != 'E'
                     || ((x - 1 < 0 || board[x - 1][y] != 'E') && (x + 1 >= board.length || board[x + 1][y] != 'E'))) {
-                return null;
+                return -1;
             }
             // minimum count for optionArea
             if ((x - 2 < 0 || board[x - 2][y] == 'X') && (x > 0 && board[x - 1][y] == 'E')) {
@@ -42,12 +41,12 @@ public class OptionArea extends Area {
                     && (x < board.length - 1 && board[x + 1][y] == 'E')) {
                 count++;
             }
-            return new OptionArea(x, y, x, y, count);
+            return Area.pack(x, y, count);
         }
         // a 0-OptionArea
         if (board[x][y] != 'E'
                 || ((y - 1 < 0 || board[x][y - 1] != 'E') && (y + 1 >= board[0].length || board[x][y + 1] != 'E'))) {
-            return null;
+            return -1;
         }
         if ((y - 2 < 0 || board[x][y - 2] == 'X') && (y > 0 && board[x][y - 1] == 'E')) {
             count++;
@@ -56,10 +55,10 @@ public class OptionArea extends Area {
                 && (y < board[0].length - 1 && board[x][y + 1] == 'E')) {
             count++;
         }
-        return new OptionArea(x, y, x, y, count);
+        return Area.pack(x, y, count);
     }
 
-    public int getWeight() {
-        return weight;
+    public static int getWeight(int area) {
+        return Area.getInfo(area);
     }
 }
@@ -1,34 +1,36 @@
 package ai;
 
-import java.util.ArrayList;
-
-public class ProtectiveArea extends Area {
-
-    private final VulnArea protectSpot;
+/*
+    Protective areas are 2x2 areas which are stored as packed ints (see Area). The additional information marks whether
+    the protect spot is the first (upper-left) or the second half of the area.
+ */
+public final class ProtectiveArea {
+    private static final int PROTECT_SECOND_HALF = 1;
+
+    private ProtectiveArea() {
+    }
 
-    public ProtectiveArea(int startX, int startY, int endX, int endY, char[][] board, Player p) {
-        super(startX, startY, endX, endY);
+    public static int pack(int startX, int startY, BitBoard board, Player p) {
+        int endX = startX + 1;
+        int endY = startY + 1;
 
         // switch for the player to position the protect spot correctly (horizontally or vertically)
+        boolean firstHalf;
         if (p == Player.V) {
-            if (endX + 1 >= board.length || (board[endX + 1][startY] != 'E' && board[endX + 1][endY] != 'E')) {
-                protectSpot = new VulnArea(startX, startY, startX, startY + 1);
-            } else {
-                protectSpot = new VulnArea(endX, startY, endX, startY + 1);
-            }
-        } else if (endY + 1 >= board[0].length || (board[startX][endY + 1] != 'E' && board[endX][endY + 1] != 'E')) {
-            protectSpot = new VulnArea(startX, startY, startX + 1, startY);
+            firstHalf = endX + 1 >= board.getWidth()
+                    || (!board.isEmpty(endX + 1, startY) && !board.isEmpty(endX + 1, endY));
         } else {
-            protectSpot = new VulnArea(startX, endY, endX, endY);
+            firstHalf = endY + 1 >= board.getHeight()
+                    || (!board.isEmpty(startX, endY + 1) && !board.isEmpty(endX, endY + 1));
         }
+        return Area.pack(startX, startY, firstHalf ? 0 : PROTECT_SECOND_HALF);
     }
 
     /*
     The input coordinates describe a protective area if both sides (left and right for Player.V and up and down for Player.H)
     are contained with other tiles or the borders. These conditions are tested in the overlong expressions below.
      */
-    public static boolean isProtectiveArea(char[][] board, Player p, int x, int y,
-                                           ArrayList<ProtectiveArea> addedAreas) {
+    public static boolean isProtectiveArea(char[][] board, Player p, int x, int y, AreaList addedAreas) {
         if (p == Player.V) {
             return (isNotOccupied(board, p, x, y)
                     && noAdjacentProtectiveArea(p, x, y, addedAreas)
@@ -54,23 +56,17 @@ public class ProtectiveArea extends Area {
         }
     }
 
-    private static boolean noAdjacentProtectiveArea(Player p, int x, int y, ArrayList<ProtectiveArea> addedAreas) {
+    private static boolean noAdjacentProtectiveArea(Player p, int x, int y, AreaList addedAreas) {
         // an area is considered adjacent if the other player can occupy both areas by placing one piece on the board
-        if (p == Player.V) {
-            for (ProtectiveArea protectiveArea : addedAreas) {
-                if (protectiveArea.getCornerUL().getY() >= y - 1 && protectiveArea.getCornerLR().getY() <= y + 2) {
-                    if (x - 1 == protectiveArea.getCornerLR().getX() || x + 2 == protectiveArea.getCornerUL().getX()) {
-                        return false;
-                    }
-                }
-            }
-        } else {
-            for (ProtectiveArea protectiveArea : addedAreas) {
-                if (protectiveArea.getCornerUL().getX() >= x - 1 && protectiveArea.getCornerLR().getX() <= x + 2) {
-                    if (y - 1 == protectiveArea.getCornerLR().getY() || y + 2 == protectiveArea.getCornerUL().getY()) {
-                        return false;
-                    }
+        for (int i = 0; i < addedAreas.size(); i++) {
+            int areaX = Area.getX(addedAreas.get(i));
+            int areaY = Area.getY(addedAreas.get(i));
+            if (p == Player.V) {
+                if (areaY >= y - 1 && areaY + 1 <= y + 2 && (x - 1 == areaX + 1 || x + 2 == areaX)) {
+                    return false;
                 }
+            } else if (areaX >= x - 1 && areaX + 1 <= x + 2 && (y - 1 == areaY + 1 || y + 2 == areaY)) {
+                return false;
             }
         }
         return true;
@@ -94,40 +90,24 @@ public class ProtectiveArea extends Area {
 //                && (board[x + 1][y + 1] == 'E' || board[x + 1][y + 1] == 'P');
     }
 
-    // Split the protective area into two vulnerable areas
-    public VulnArea[] splitIntoVulnTwo(Player player) {
-        if (player == Player.H) {
-            if (protectSpot.getCornerLR().getY() == cornerLR.getY()) {
-                return new VulnArea[]{
-                        protectSpot, new VulnArea(
-                        cornerUL.getX(), cornerUL.getY(), cornerLR.getX(), cornerUL.getY()
-                )
-                };
-            } else {
-                return new VulnArea[]{
-                        protectSpot, new VulnArea(
-                        cornerUL.getX(), cornerLR.getY(), cornerLR.getX(), cornerLR.getY()
-                )
-                };
-            }
-        } else if (protectSpot.getCornerLR().getX() == cornerLR.getX()) {
-            return new VulnArea[]{
-                    protectSpot, new VulnArea(
-                    cornerUL.getX(), cornerUL.getY(), cornerUL.getX(), cornerLR.getY()
-            )
-            };
-        } else {
-            return new VulnArea[]{
-                    protectSpot, new VulnArea(
-                    cornerLR.getX(), cornerUL.getY(), cornerLR.getX(), cornerLR.getY()
-            )
-            };
+    // the protect spot is the half of the protective area which should be occupied first in order to convert the
+    // protective area to a safe area! It is returned as a packed vulnerable area.
+    public static int getProtectSpot(int area, Player player) {
+        int x = Area.getX(area);
+        int y = Area.getY(area);
+        if ((Area.getInfo(area) & PROTECT_SECOND_HALF) == 0) {
+            return Coordinate.pack(x, y);
         }
+        return player == Player.V ? Coordinate.pack(x + 1, y) : Coordinate.pack(x, y + 1);
     }
 
-    // the protect spot is the half of the protective area which should be occupied first in order to convert the
-    // protective area to a safe area!
-    public VulnArea getProtectSpot() {
-        return protectSpot;
+    // Split the protective area into two vulnerable areas, this returns the one which is not the protect spot
+    public static int getOtherHalf(int area, Player player) {
+        int x = Area.getX(area);
+        int y = Area.getY(area);
+        if ((Area.getInfo(area) & PROTECT_SECOND_HALF) != 0) {
+            return Coordinate.pack(x, y);
+        }
+        return player == Player.V ? Coordinate.pack(x + 1, y) : Coordinate.pack(x, y + 1);
     }
 }
@@ -0,0 +1,207 @@
+package ai;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+    Precomputed values of all small regions (see RegionSolver), stored in a file which is mapped into memory. The
+    mapping is read-only and shared by all searchers (and all processes using the same file), it doesn't use any heap
+    and looking up a region costs one hash probe.
+
+    The file is created offline with the main method of this class. It enumerates every connected region up to the
+    given number of squares (the free polyominoes, one per canonical form), solves each one and writes the values into
+    an open addressing hash table:
+
+        header:  magic (int) | max squares (int) | region count (int) | table size (int)
+        entries: mask (long) | shape (int, 0 = empty slot) | value (float)
+
+    The key of an entry is the canonical (shape, mask) of RegionSolver. The values are dyadic fractions with a few bits,
+    so a float holds them exactly, just like NOT_A_NUMBER (+infinity) and UNKNOWN (NaN).
+ */
+public final class RegionDatabase {
+    // returned by lookup if the region is not in the database, no region has this value
+    public static final double MISSING = Double.NEGATIVE_INFINITY;
+
+    private static final int MAGIC = 0x444F4D52;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 16;
+    // the generator solves every region of the database and needs a much larger cache than a single search
+    private static final int GENERATOR_CACHE_BITS = 22;
+
+    private final MappedByteBuffer buffer;
+    private final int maxSquares;
+    private final int tableMask;
+
+    private RegionDatabase(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.maxSquares = buffer.getInt(4);
+        this.tableMask = buffer.getInt(12) - 1;
+    }
+
+    public static RegionDatabase open(Path file) throws IOException {
+        // the mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("not a region database: " + file);
+            }
+            return new RegionDatabase(buffer);
+        }
+    }
+
+    // all regions with up to this many squares (and a bounding box of at most 64 squares) are in the database
+    public int getMaxSquares() {
+        return maxSquares;
+    }
+
+    // the value of the region in canonical form, MISSING if it's not in the database
+    public double lookup(int shape, long mask) {
+        // only absolute reads, so the buffer can be used by all threads at once
+        int slot = (int) (RegionSolver.mix(mask, shape) & tableMask);
+        while (true) {
+            int offset = HEADER_BYTES + slot * ENTRY_BYTES;
+            int storedShape = buffer.getInt(offset + 8);
+            if (storedShape == 0) {
+                return MISSING;
+            }
+            if (storedShape == shape && buffer.getLong(offset) == mask) {
+                return buffer.getFloat(offset + 12);
+            }
+            slot = (slot + 1) & tableMask;
+        }
+    }
+
+    /*
+        Usage: RegionDatabase <file> [max squares]
+
+        Every additional square multiplies the number of regions by about 4: 12 squares take a second and 4 MB,
+        14 squares about 5 seconds and 64 MB, 15 squares 20 seconds and 256 MB.
+     */
+    public static void main(String[] args) throws IOException {
+        int maxSquares = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+        generate(Paths.get(args[0]), maxSquares);
+    }
+
+    public static void generate(Path file, int maxSquares) throws IOException {
+        // the regions of each size are grown from the ones which are one square smaller
+        List<Set<Region>> regionsBySize = new ArrayList<>();
+        Set<Region> current = new HashSet<>();
+        current.add(new Region(RegionSolver.shape(1, 1), 1));
+        int count = 0;
+        for (int size = 2; size <= maxSquares; size++) {
+            Set<Region> next = new HashSet<>();
+            for (Region region : current) {
+                grow(region, next);
+            }
+            System.out.println(size + " squares: " + next.size() + " regions");
+            regionsBySize.add(next);
+            count += next.size();
+            current = next;
+        }
+
+        // load factor of at most 1/2, so the probe sequences stay short
+        int tableSize = Integer.highestOneBit(Math.max(1, count) * 2 - 1) << 1;
+        RegionSolver solver = new RegionSolver(1, 1, GENERATOR_CACHE_BITS);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) tableSize * ENTRY_BYTES);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, maxSquares);
+            buffer.putInt(8, count);
+            buffer.putInt(12, tableSize);
+            // smaller regions first, they are the options of the larger ones and stay in the solver's cache
+            for (Set<Region> regions : regionsBySize) {
+                for (Region region : regions) {
+                    // the region is already canonical, so the value isn't negated
+                    double value = solver.regionValue(region.shape >>> 8, region.shape & 0xFF, region.mask);
+                    int slot = (int) (RegionSolver.mix(region.mask, region.shape) & (tableSize - 1));
+                    while (buffer.getInt(HEADER_BYTES + slot * ENTRY_BYTES + 8) != 0) {
+                        slot = (slot + 1) & (tableSize - 1);
+                    }
+                    int offset = HEADER_BYTES + slot * ENTRY_BYTES;
+                    buffer.putLong(offset, region.mask);
+                    buffer.putInt(offset + 8, region.shape);
+                    buffer.putFloat(offset + 12, (float) value);
+                }
+            }
+            buffer.force();
+        }
+    }
+
+    // adds every region which consists of the given one and one of its neighbouring squares
+    private static void grow(Region region, Set<Region> next) {
+        int regionWidth = region.shape >>> 8;
+        int regionHeight = region.shape & 0xFF;
+        int size = Long.bitCount(region.mask);
+        int[] xs = new int[size + 1];
+        int[] ys = new int[size + 1];
+        int i = 0;
+        for (long bits = region.mask; bits != 0; bits &= bits - 1) {
+            int square = Long.numberOfTrailingZeros(bits);
+            xs[i] = square / regionHeight;
+            ys[i] = square % regionHeight;
+            i++;
+        }
+
+        int[] dx = {0, 0, -1, 1};
+        int[] dy = {-1, 1, 0, 0};
+        for (int square = 0; square < size; square++) {
+            for (int direction = 0; direction < 4; direction++) {
+                int x = xs[square] + dx[direction];
+                int y = ys[square] + dy[direction];
+                if (x >= 0 && x < regionWidth && y >= 0 && y < regionHeight
+                        && (region.mask & (1L << (x * regionHeight + y))) != 0) {
+                    continue;
+                }
+                xs[size] = x;
+                ys[size] = y;
+                int minX = Math.min(0, x);
+                int minY = Math.min(0, y);
+                int grownWidth = Math.max(regionWidth, x + 1) - minX;
+                int grownHeight = Math.max(regionHeight, y + 1) - minY;
+                if (grownWidth * grownHeight > 64) {
+                    continue;
+                }
+                long mask = 0;
+                for (int j = 0; j <= size; j++) {
+                    mask |= 1L << ((xs[j] - minX) * grownHeight + ys[j] - minY);
+                }
+                int symmetry = RegionSolver.canonicalSymmetry(grownWidth, grownHeight, mask);
+                int shape = (symmetry & 4) != 0
+                        ? RegionSolver.shape(grownHeight, grownWidth)
+                        : RegionSolver.shape(grownWidth, grownHeight);
+                next.add(new Region(shape, RegionSolver.transform(mask, grownWidth, grownHeight, symmetry)));
+            }
+        }
+    }
+
+    // a region in canonical form, only used while generating the database
+    private static final class Region {
+        private final int shape;
+        private final long mask;
+
+        private Region(int shape, long mask) {
+            this.shape = shape;
+            this.mask = mask;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Region && ((Region) other).shape == shape && ((Region) other).mask == mask;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(RegionSolver.mix(mask, shape));
+        }
+    }
+}
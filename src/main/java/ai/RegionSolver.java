@@ -0,0 +1,386 @@
+package ai;
+
+import java.util.Arrays;
+
+/*
+    Late in the game, the empty squares fall apart into independent regions (connected components). The whole position
+    is then the sum of these regions in the sense of combinatorial game theory, as described in Nathan Bullock's thesis.
+
+    Every small region is solved exactly: its value is calculated from the values of its options, which are again sums
+    of smaller regions. Only values which are numbers are tracked (V is the left player, so positive numbers are good
+    for V). A region is either
+
+        - a number: the number of "free moves" V is ahead in this region (can be a fraction like 1/2)
+        - not a number: all options are numbers, but the region is hot (e.g. a 2x2 square) or an infinitesimal
+        - unknown: the region is too large or one of its options isn't a number
+
+    This allows two things:
+        1. if all regions are numbers, the sum decides the game: positive -> V wins, negative -> H wins and zero -> the
+           player who has to move loses. The position doesn't have to be searched any further.
+        2. number avoidance theorem: if there is a region which is not a number, a player never has to move in a region
+           which is a number. Those moves can be left out of the search.
+
+    The values are cached under a canonical key of the region: the mask of its empty squares, shifted to the upper left
+    corner of its bounding box, mirrored and transposed such that the key is minimal. Mirroring doesn't change the
+    value, transposing swaps V and H and therefore negates it. If a RegionDatabase is set, it is asked first, so the
+    regions it contains are never solved again (and it can contain larger regions than the ones solved here).
+ */
+public final class RegionSolver {
+    public static final double NOT_A_NUMBER = Double.POSITIVE_INFINITY;
+    public static final double UNKNOWN = Double.NaN;
+
+    // larger regions are not solved, their number of sub-positions grows too fast
+    private static final int MAX_REGION_SQUARES = 14;
+    private static final int DEFAULT_CACHE_BITS = 17;
+
+    private final int width;
+    private final int height;
+
+    // results of the last decompose() call
+    private final int[] componentOf;
+    private final double[] componentValues;
+    private int componentCount;
+
+    // temporary storage for the flood fill and the masks of the components
+    private final int[] stack;
+    private final int[] squares;
+
+    // cache of the region values, the key is the mask together with the size of the bounding box (the shape 0 never
+    // belongs to a region, so empty slots can't match)
+    private final long[] cachedMasks;
+    private final int[] cachedShapes;
+    private final double[] cachedValues;
+
+    // precomputed values of small regions, null if there is none
+    private RegionDatabase database;
+
+    public RegionSolver(int width, int height) {
+        this(width, height, DEFAULT_CACHE_BITS);
+    }
+
+    // the generator of the region database solves a lot more regions than a search and uses a larger cache
+    RegionSolver(int width, int height, int cacheBits) {
+        this.width = width;
+        this.height = height;
+        this.cachedMasks = new long[1 << cacheBits];
+        this.cachedShapes = new int[1 << cacheBits];
+        this.cachedValues = new double[1 << cacheBits];
+        this.componentOf = new int[width * height];
+        this.componentValues = new double[width * height];
+        this.stack = new int[width * height];
+        this.squares = new int[width * height];
+    }
+
+    public void setDatabase(RegionDatabase database) {
+        this.database = database;
+    }
+
+    /*
+        Splits the empty squares of the board into 4-connected components and calculates the value of each one. Squares
+        which are occupied belong to the component -1.
+     */
+    public void decompose(BitBoard board) {
+        Arrays.fill(componentOf, -1);
+        componentCount = 0;
+        for (int start = 0; start < width * height; start++) {
+            if (componentOf[start] != -1 || !board.isEmpty(start / height, start % height)) {
+                continue;
+            }
+            int component = componentCount++;
+            int size = 0;
+            int minX = width, maxX = -1, minY = height, maxY = -1;
+            int top = 0;
+            stack[top++] = start;
+            componentOf[start] = component;
+            while (top > 0) {
+                int square = stack[--top];
+                squares[size++] = square;
+                int x = square / height;
+                int y = square % height;
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+                if (y > 0 && componentOf[square - 1] == -1 && board.isEmpty(x, y - 1)) {
+                    componentOf[square - 1] = component;
+                    stack[top++] = square - 1;
+                }
+                if (y < height - 1 && componentOf[square + 1] == -1 && board.isEmpty(x, y + 1)) {
+                    componentOf[square + 1] = component;
+                    stack[top++] = square + 1;
+                }
+                if (x > 0 && componentOf[square - height] == -1 && board.isEmpty(x - 1, y)) {
+                    componentOf[square - height] = component;
+                    stack[top++] = square - height;
+                }
+                if (x < width - 1 && componentOf[square + height] == -1 && board.isEmpty(x + 1, y)) {
+                    componentOf[square + height] = component;
+                    stack[top++] = square + height;
+                }
+            }
+
+            int regionWidth = maxX - minX + 1;
+            int regionHeight = maxY - minY + 1;
+            if (size == 1) {
+                // nobody can place a piece on a single square
+                componentValues[component] = 0;
+            } else if (size > maxRegionSquares() || regionWidth * regionHeight > 64) {
+                componentValues[component] = UNKNOWN;
+            } else {
+                long mask = 0;
+                for (int i = 0; i < size; i++) {
+                    int x = squares[i] / height - minX;
+                    int y = squares[i] % height - minY;
+                    mask |= 1L << (x * regionHeight + y);
+                }
+                componentValues[component] = regionValue(regionWidth, regionHeight, mask);
+            }
+        }
+    }
+
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    public double getComponentValue(int component) {
+        return componentValues[component];
+    }
+
+    // the component of the upper left square of the given (packed) move
+    public int componentOfMove(int move) {
+        return componentOf[Coordinate.unpackX(move) * height + Coordinate.unpackY(move)];
+    }
+
+    // the sum of all components if all of them are numbers, otherwise UNKNOWN
+    public double numberSum() {
+        double sum = 0;
+        for (int component = 0; component < componentCount; component++) {
+            if (!isNumber(componentValues[component])) {
+                return UNKNOWN;
+            }
+            sum += componentValues[component];
+        }
+        return sum;
+    }
+
+    // true if at least one component is definitely not a number
+    public boolean hasHotComponent() {
+        for (int component = 0; component < componentCount; component++) {
+            if (componentValues[component] == NOT_A_NUMBER) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean isNumber(double value) {
+        return Double.isFinite(value);
+    }
+
+    // the database contains every region up to its size, so those don't have to be solved here
+    private int maxRegionSquares() {
+        return database == null ? MAX_REGION_SQUARES : Math.max(MAX_REGION_SQUARES, database.getMaxSquares());
+    }
+
+    /*
+        The value of the region with the given bounding box. The squares are stored column by column like in BitBoard,
+        so the square (x, y) is the bit x * regionHeight + y.
+     */
+    double regionValue(int regionWidth, int regionHeight, long mask) {
+        int symmetry = canonicalSymmetry(regionWidth, regionHeight, mask);
+        boolean transposed = (symmetry & 4) != 0;
+        long bestMask = transform(mask, regionWidth, regionHeight, symmetry);
+        int bestShape = transposed ? shape(regionHeight, regionWidth) : shape(regionWidth, regionHeight);
+
+        double value = database == null ? RegionDatabase.MISSING : database.lookup(bestShape, bestMask);
+        if (value == RegionDatabase.MISSING) {
+            int slot = (int) (mix(bestMask, bestShape) & (cachedMasks.length - 1));
+            if (cachedShapes[slot] == bestShape && cachedMasks[slot] == bestMask) {
+                value = cachedValues[slot];
+            } else {
+                value = solve(bestShape >>> 8, bestShape & 0xFF, bestMask);
+                cachedShapes[slot] = bestShape;
+                cachedMasks[slot] = bestMask;
+                cachedValues[slot] = value;
+            }
+        }
+        // the transposed region is the same game with V and H swapped
+        return transposed && isNumber(value) ? -value : value;
+    }
+
+    // the key of a bounding box, regions with the shape 0 don't exist
+    static int shape(int regionWidth, int regionHeight) {
+        return (regionWidth << 8) | regionHeight;
+    }
+
+    // the symmetry which transforms the region into its canonical form: the smallest (shape, mask) of all variants
+    static int canonicalSymmetry(int regionWidth, int regionHeight, long mask) {
+        long bestMask = 0;
+        int bestShape = 0;
+        int bestSymmetry = 0;
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            boolean transposed = (symmetry & 4) != 0;
+            long variant = transform(mask, regionWidth, regionHeight, symmetry);
+            int shape = transposed ? shape(regionHeight, regionWidth) : shape(regionWidth, regionHeight);
+            if (bestShape == 0 || shape < bestShape || (shape == bestShape && Long.compareUnsigned(variant, bestMask) < 0)) {
+                bestShape = shape;
+                bestMask = variant;
+                bestSymmetry = symmetry;
+            }
+        }
+        return bestSymmetry;
+    }
+
+    // calculates the value of a region from the values of its options
+    private double solve(int regionWidth, int regionHeight, long mask) {
+        double bestLeft = Double.NEGATIVE_INFINITY;
+        double bestRight = Double.POSITIVE_INFINITY;
+        boolean hasLeft = false;
+        boolean hasRight = false;
+
+        for (int x = 0; x < regionWidth; x++) {
+            for (int y = 0; y < regionHeight; y++) {
+                int square = x * regionHeight + y;
+                if ((mask & (1L << square)) == 0) {
+                    continue;
+                }
+                // V (left) places a vertical piece
+                if (y + 1 < regionHeight && (mask & (1L << (square + 1))) != 0) {
+                    double option = sumOfRegions(regionWidth, regionHeight, mask & ~(3L << square));
+                    if (!isNumber(option)) {
+                        return UNKNOWN;
+                    }
+                    hasLeft = true;
+                    bestLeft = Math.max(bestLeft, option);
+                }
+                // H (right) places a horizontal piece
+                if (x + 1 < regionWidth && (mask & (1L << (square + regionHeight))) != 0) {
+                    double option = sumOfRegions(regionWidth, regionHeight,
+                            mask & ~(1L << square) & ~(1L << (square + regionHeight)));
+                    if (!isNumber(option)) {
+                        return UNKNOWN;
+                    }
+                    hasRight = true;
+                    bestRight = Math.min(bestRight, option);
+                }
+            }
+        }
+
+        if (hasLeft && hasRight && bestLeft >= bestRight) {
+            return NOT_A_NUMBER;
+        }
+        return simplestNumberBetween(hasLeft ? bestLeft : Double.NEGATIVE_INFINITY,
+                hasRight ? bestRight : Double.POSITIVE_INFINITY);
+    }
+
+    // splits the given squares of a region into its components and sums up their values
+    private double sumOfRegions(int regionWidth, int regionHeight, long mask) {
+        double sum = 0;
+        long remaining = mask;
+        while (remaining != 0) {
+            // flood fill of the component of the lowest remaining square
+            long component = Long.lowestOneBit(remaining);
+            long previous;
+            do {
+                previous = component;
+                long grown = component | ((component << 1) & ~firstRows(regionWidth, regionHeight))
+                        | ((component >>> 1) & ~lastRows(regionWidth, regionHeight))
+                        | (component << regionHeight) | (component >>> regionHeight);
+                component = grown & mask;
+            } while (component != previous);
+            remaining &= ~component;
+
+            if (Long.bitCount(component) < 2) {
+                continue;
+            }
+            // shift the component into the corner of its own bounding box
+            int minX = regionWidth, maxX = -1, minY = regionHeight, maxY = -1;
+            for (long bits = component; bits != 0; bits &= bits - 1) {
+                int square = Long.numberOfTrailingZeros(bits);
+                minX = Math.min(minX, square / regionHeight);
+                maxX = Math.max(maxX, square / regionHeight);
+                minY = Math.min(minY, square % regionHeight);
+                maxY = Math.max(maxY, square % regionHeight);
+            }
+            int componentHeight = maxY - minY + 1;
+            long shifted = 0;
+            for (long bits = component; bits != 0; bits &= bits - 1) {
+                int square = Long.numberOfTrailingZeros(bits);
+                int x = square / regionHeight - minX;
+                int y = square % regionHeight - minY;
+                shifted |= 1L << (x * componentHeight + y);
+            }
+            double value = regionValue(maxX - minX + 1, componentHeight, shifted);
+            if (!isNumber(value)) {
+                return value == NOT_A_NUMBER ? UNKNOWN : value;
+            }
+            sum += value;
+        }
+        return sum;
+    }
+
+    // all squares of the first row (y = 0), a square can't grow upwards into the column before
+    private static long firstRows(int regionWidth, int regionHeight) {
+        long rows = 0;
+        for (int x = 0; x < regionWidth; x++) {
+            rows |= 1L << (x * regionHeight);
+        }
+        return rows;
+    }
+
+    // all squares of the last row (y = regionHeight - 1), a square can't grow downwards into the next column
+    private static long lastRows(int regionWidth, int regionHeight) {
+        return firstRows(regionWidth, regionHeight) << (regionHeight - 1);
+    }
+
+    // mirrors (bit 0: x, bit 1: y) and transposes (bit 2) the mask of a region
+    static long transform(long mask, int regionWidth, int regionHeight, int symmetry) {
+        boolean transposed = (symmetry & 4) != 0;
+        int variantHeight = transposed ? regionWidth : regionHeight;
+        long result = 0;
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            int square = Long.numberOfTrailingZeros(bits);
+            int x = square / regionHeight;
+            int y = square % regionHeight;
+            if ((symmetry & 1) != 0) {
+                x = regionWidth - 1 - x;
+            }
+            if ((symmetry & 2) != 0) {
+                y = regionHeight - 1 - y;
+            }
+            result |= transposed ? 1L << (y * variantHeight + x) : 1L << (x * variantHeight + y);
+        }
+        return result;
+    }
+
+    /*
+        The simplest number strictly between "left" and "right" (the value of a game whose best options are numbers
+        and left < right). Integers are simpler than fractions, smaller integers are simpler than larger ones and
+        fractions with a smaller denominator (power of two) are simpler than others.
+     */
+    static double simplestNumberBetween(double left, double right) {
+        if (left < 0 && right > 0) {
+            return 0;
+        }
+        if (right <= 0) {
+            return -simplestNumberBetween(-right, -left);
+        }
+        // 0 <= left < right
+        double integer = Math.floor(left) + 1;
+        if (integer < right) {
+            return integer;
+        }
+        for (double step = 0.5; ; step /= 2) {
+            double candidate = Math.floor(left / step) * step + step;
+            if (candidate < right) {
+                return candidate;
+            }
+        }
+    }
+
+    static long mix(long mask, int shape) {
+        long z = mask * 0x9E3779B97F4A7C15L + shape;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        return z ^ (z >>> 31);
+    }
+}
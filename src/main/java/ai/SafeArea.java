@@ -1,12 +1,19 @@
 package ai;
 
-public class SafeArea extends Area {
+/*
+    Safe areas are spots where the player could place his tile, but the other player can never obstruct. They are
+    stored as packed ints (see Area), the additional information marks the option areas found below (lower) or above
+    (upper) the safe area.
+ */
+public final class SafeArea {
+    private static final int OPTION_LOWER = 1;
+    private static final int OPTION_UPPER = 2;
 
-    private SafeArea optionSafeUpper;
-    private SafeArea optionSafeLower;
+    private SafeArea() {
+    }
 
-    public SafeArea(int xOne, int yOne, int xTwo, int yTwo) {
-        super(xOne, yOne, xTwo, yTwo);
+    public static int pack(int x, int y) {
+        return Area.pack(x, y, 0);
     }
 
     // same as for the other areas, tests if the given coordinates qualify for being a safe area
@@ -34,23 +41,33 @@ public class SafeArea extends Area {
         }
     }
 
-    public void addOptionAreaHigher(OptionArea oaHigher) {
-        optionSafeUpper = new SafeArea(oaHigher.getCornerUL().getX(), oaHigher.getCornerUL().getY(), cornerUL.getX(),
-                cornerUL.getY()
-        );
+    public static int addOptionAreaHigher(int area) {
+        return area | (OPTION_UPPER << 16);
+    }
+
+    public static int addOptionAreaLower(int area) {
+        return area | (OPTION_LOWER << 16);
+    }
+
+    public static boolean hasOptionSafeUpper(int area) {
+        return (Area.getInfo(area) & OPTION_UPPER) != 0;
     }
 
-    public void addOptionAreaLower(OptionArea oaLower) {
-        optionSafeLower = new SafeArea(cornerLR.getX(), cornerLR.getY(), oaLower.getCornerUL().getX(),
-                oaLower.getCornerUL().getY()
-        );
+    public static boolean hasOptionSafeLower(int area) {
+        return (Area.getInfo(area) & OPTION_LOWER) != 0;
     }
 
-    public SafeArea getOptionSafeUpper() {
-        return optionSafeUpper;
+    // the upper-left corner of the piece which covers the option area above and the upper square of the safe area
+    public static int getOptionSafeUpper(int area, Player p) {
+        return p == Player.V
+                ? Coordinate.pack(Area.getX(area), Area.getY(area) - 1)
+                : Coordinate.pack(Area.getX(area) - 1, Area.getY(area));
     }
 
-    public SafeArea getOptionSafeLower() {
-        return optionSafeLower;
+    // the upper-left corner of the piece which covers the lower square of the safe area and the option area below
+    public static int getOptionSafeLower(int area, Player p) {
+        return p == Player.V
+                ? Coordinate.pack(Area.getX(area), Area.getY(area) + 1)
+                : Coordinate.pack(Area.getX(area) + 1, Area.getY(area));
     }
 }
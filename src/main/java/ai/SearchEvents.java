@@ -0,0 +1,110 @@
+package ai;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+
+/*
+    Java Flight Recorder events of the engine. They are disabled by default and only recorded if a recording enables
+    them explicitly, e.g. with the settings file in the root of the project:
+
+        java -XX:StartFlightRecording:filename=games.jfr,settings=search-events.jfc ...
+
+    (from JDK 17 on, "+ai.MoveDecision#enabled=true" etc. enables single events on top of the default settings). Without
+    a recording, creating and committing an event costs next to nothing. The values which have to be calculated are
+    only calculated if shouldCommit() says that the event is actually recorded.
+ */
+final class SearchEvents {
+    private SearchEvents() {
+    }
+
+    @Name("ai.MoveDecision")
+    @Label("Move Decision")
+    @Description("One call of HardMinMax.playMove, the duration is the time until the move was chosen")
+    @Category("Domineering")
+    @Enabled(false)
+    static final class MoveDecision extends Event {
+        @Label("Player")
+        String player;
+
+        @Label("Blocked Squares")
+        @Description("Occupied squares of the board, the phase of the game")
+        int blockedSquares;
+
+        @Label("Searched")
+        @Description("False if the move was taken from an opening or a ponder hit")
+        boolean searched;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Nodes")
+        long nodes;
+
+        @Label("Table Probes")
+        long tableProbes;
+
+        @Label("Table Hits")
+        long tableHits;
+    }
+
+    @Name("ai.Iteration")
+    @Label("Search Iteration")
+    @Description("One search of the root position with a fixed depth limit (an iteration of iterative deepening)")
+    @Category("Domineering")
+    @Enabled(false)
+    static final class Iteration extends Event {
+        @Label("Depth")
+        int depth;
+
+        @Label("Completed")
+        @Description("False if the time was up before the iteration was finished, its result is thrown away")
+        boolean completed;
+
+        @Label("Best Move")
+        String move;
+
+        @Label("Score")
+        float score;
+    }
+
+    @Name("ai.TableUsage")
+    @Label("Table Usage")
+    @Description("How full the scoreMap is after a search, estimated from a sample of its entries")
+    @Category("Domineering")
+    @Enabled(false)
+    static final class TableUsage extends Event {
+        @Label("Capacity")
+        int capacity;
+
+        @Label("Used")
+        @Percentage
+        double used;
+
+        @Label("Used By The Last Search")
+        @Description("Entries which were written or read by the last search, the others are replaced first")
+        @Percentage
+        double current;
+    }
+
+    @Name("ai.Game")
+    @Label("Game")
+    @Description("A whole game run by Game.runGame")
+    @Category("Domineering")
+    @Enabled(false)
+    static final class GameFinished extends Event {
+        @Label("Moves")
+        int moves;
+
+        @Label("Winner")
+        String winner;
+
+        @Label("Invalid Move")
+        @Description("The game ended because the loser returned an invalid move")
+        boolean invalidMove;
+    }
+}
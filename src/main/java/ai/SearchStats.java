@@ -0,0 +1,54 @@
+package ai;
+
+/*
+    What a search of HardMinMax did to find its move (see HardMinMax.playMoveWithStats). Every searcher counts in its
+    own plain fields and the counts of all searchers are added up after the search, so the counting costs next to
+    nothing and is always on.
+
+    If the move was taken from an opening or a ponder hit, nothing was searched and all counts are 0.
+ */
+public class SearchStats {
+    // the chosen move
+    public Coordinate move;
+    // the depth limit of the search, or of its last completed iteration with a time budget
+    public int depth;
+    public long elapsedNanos;
+    // positions visited by all threads
+    public long nodes;
+    // positions whose moves were generated and searched (the others were scored as a leaf or by the scoreMap)
+    public long expandedNodes;
+    // moves searched in the expanded positions
+    public long searchedMoves;
+    // lookups in the scoreMap and how many of them found an entry
+    public long tableProbes;
+    public long tableHits;
+    // alpha-beta cutoffs and how many of them already happened at the first move
+    public long cutoffs;
+    public long firstMoveCutoffs;
+
+    public double nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    public double tableHitRate() {
+        return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+    }
+
+    // a good move order finds almost every cutoff at the first move
+    public double firstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    // the average number of moves which were searched in an expanded position
+    public double branchingFactor() {
+        return expandedNodes == 0 ? 0 : (double) searchedMoves / expandedNodes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("move %s, depth %d, %d nodes in %.1f ms (%.0f nodes/s), table hits %.1f%%, "
+                        + "cutoffs %d (%.1f%% at the first move), branching factor %.2f",
+                move, depth, nodes, elapsedNanos / 1e6, nodesPerSecond(), 100 * tableHitRate(), cutoffs,
+                100 * firstMoveCutoffRate(), branchingFactor());
+    }
+}
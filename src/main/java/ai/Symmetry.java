@@ -0,0 +1,74 @@
+package ai;
+
+/*
+    The symmetries of a Domineering position. Mirroring the board left-right or top-bottom (and therefore also rotating
+    it by 180 degrees) doesn't change anything about the game, vertical pieces stay vertical. Transposing the board
+    (swapping x and y) turns every vertical piece into a horizontal one, so the position is the same one with the roles
+    of V and H swapped. This is only possible for square boards.
+
+    A symmetry is stored as a small number:
+        bit 0: mirror x (left-right)
+        bit 1: mirror y (top-bottom)
+        bit 2: transpose, which is done after the mirroring
+ */
+public final class Symmetry {
+    public static final int IDENTITY = 0;
+
+    private static final int MIRROR_X = 1;
+    private static final int MIRROR_Y = 2;
+    private static final int TRANSPOSE = 4;
+
+    private Symmetry() {
+    }
+
+    // the transposed symmetries only exist if the board is square
+    public static int count(int width, int height) {
+        return width == height ? 8 : 4;
+    }
+
+    public static boolean swapsPlayers(int symmetry) {
+        return (symmetry & TRANSPOSE) != 0;
+    }
+
+    // the player who plays the role of the given player in the transformed position
+    public static Player transformPlayer(int symmetry, Player player) {
+        return swapsPlayers(symmetry) ? player.getOtherPlayer() : player;
+    }
+
+    // the symmetry which undoes the given one (when transposing, the mirrored axes are swapped as well)
+    public static int inverse(int symmetry) {
+        if (!swapsPlayers(symmetry)) {
+            return symmetry;
+        }
+        return TRANSPOSE | ((symmetry & MIRROR_X) << 1) | ((symmetry & MIRROR_Y) >> 1);
+    }
+
+    // the packed coordinate of the square (x, y) on the transformed board
+    public static int transformSquare(int symmetry, int x, int y, int width, int height) {
+        if ((symmetry & MIRROR_X) != 0) {
+            x = width - 1 - x;
+        }
+        if ((symmetry & MIRROR_Y) != 0) {
+            y = height - 1 - y;
+        }
+        return swapsPlayers(symmetry) ? Coordinate.pack(y, x) : Coordinate.pack(x, y);
+    }
+
+    /*
+        Transforms a move (packed upper-left square of a piece of the given player) of a board with the given size.
+        Both squares of the piece are transformed and the upper-left one of the results is the new move, which then
+        belongs to transformPlayer(symmetry, player).
+     */
+    public static int transformMove(int symmetry, int move, Player player, int width, int height) {
+        int x = Coordinate.unpackX(move);
+        int y = Coordinate.unpackY(move);
+        int first = transformSquare(symmetry, x, y, width, height);
+        int second = player == Player.V
+                ? transformSquare(symmetry, x, y + 1, width, height)
+                : transformSquare(symmetry, x + 1, y, width, height);
+        return Coordinate.pack(
+                Math.min(Coordinate.unpackX(first), Coordinate.unpackX(second)),
+                Math.min(Coordinate.unpackY(first), Coordinate.unpackY(second))
+        );
+    }
+}
@@ -0,0 +1,188 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/*
+    Plays many games between two engines at once, without any output during the games. Every game gets new engines
+    from the suppliers, so the suppliers decide whether the engines have their own scoreMap (new BoardStorage in the
+    supplier) or share one (a storage created outside of it, the storage can be used by several threads at once).
+
+    The engines swap colors every game. Every game starts with a few random moves (from a seed which only depends on the
+    seed of the tournament and the number of the game), so the games cover many different positions instead of mostly
+    repeating the openings the engines prefer.
+ */
+public class Tournament {
+    // random moves of both players at the start of every game
+    public int openingPlies = 4;
+    public long seed = 1;
+    public int width = Game.DEFAULT_SIZE;
+    public int height = Game.DEFAULT_SIZE;
+
+    private final Supplier<AI> first;
+    private final Supplier<AI> second;
+    private final int threads;
+
+    public Tournament(Supplier<AI> first, Supplier<AI> second, int threads) {
+        this.first = first;
+        this.second = second;
+        this.threads = threads;
+    }
+
+    public Result run(int games) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<GameResult>> futures = new ArrayList<>();
+            for (int i = 0; i < games; i++) {
+                int game = i;
+                futures.add(executor.submit(() -> play(game)));
+            }
+            Result result = new Result();
+            for (Future<GameResult> future : futures) {
+                try {
+                    result.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("A game of the tournament failed", e.getCause());
+                }
+            }
+            result.elapsedNanos = System.nanoTime() - start;
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // the first engine plays V in the even games and H in the odd ones
+    private GameResult play(int game) {
+        boolean firstIsVertical = game % 2 == 0;
+        Random random = new Random(seed * 1_000_003 + game);
+        AI vertical = new RandomOpening(firstIsVertical ? first.get() : second.get(), random, openingPlies);
+        AI horizontal = new RandomOpening(firstIsVertical ? second.get() : first.get(), random, openingPlies);
+        Game match = new Game(vertical, horizontal, false, width, height);
+        match.runGame();
+        boolean verticalWon = match.getWinner() == vertical;
+        return new GameResult(firstIsVertical, verticalWon == firstIsVertical, match.getMoveCount());
+    }
+
+    private static final class GameResult {
+        private final boolean firstIsVertical;
+        private final boolean firstWon;
+        private final int moves;
+
+        private GameResult(boolean firstIsVertical, boolean firstWon, int moves) {
+            this.firstIsVertical = firstIsVertical;
+            this.firstWon = firstWon;
+            this.moves = moves;
+        }
+    }
+
+    // the results from the view of the first engine
+    public static class Result {
+        public int games;
+        public int gamesAsVertical;
+        public int winsAsVertical;
+        public int gamesAsHorizontal;
+        public int winsAsHorizontal;
+        public long moves;
+        public int shortestGame = Integer.MAX_VALUE;
+        public int longestGame;
+        public long elapsedNanos;
+
+        private void add(GameResult game) {
+            games++;
+            if (game.firstIsVertical) {
+                gamesAsVertical++;
+                winsAsVertical += game.firstWon ? 1 : 0;
+            } else {
+                gamesAsHorizontal++;
+                winsAsHorizontal += game.firstWon ? 1 : 0;
+            }
+            moves += game.moves;
+            shortestGame = Math.min(shortestGame, game.moves);
+            longestGame = Math.max(longestGame, game.moves);
+        }
+
+        public double winRate() {
+            return games == 0 ? 0 : (double) (winsAsVertical + winsAsHorizontal) / games;
+        }
+
+        public double winRateAsVertical() {
+            return gamesAsVertical == 0 ? 0 : (double) winsAsVertical / gamesAsVertical;
+        }
+
+        public double winRateAsHorizontal() {
+            return gamesAsHorizontal == 0 ? 0 : (double) winsAsHorizontal / gamesAsHorizontal;
+        }
+
+        public double averageGameLength() {
+            return games == 0 ? 0 : (double) moves / games;
+        }
+
+        // moves of all games together per second of wall clock time
+        public double movesPerSecond() {
+            return elapsedNanos == 0 ? 0 : moves * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games: first engine wins %.1f%% (as V %.1f%% of %d, as H %.1f%% of %d), "
+                            + "game length %.1f moves (%d - %d), %.1f moves/s",
+                    games, 100 * winRate(), 100 * winRateAsVertical(), gamesAsVertical, 100 * winRateAsHorizontal(),
+                    gamesAsHorizontal, averageGameLength(), games == 0 ? 0 : shortestGame, longestGame,
+                    movesPerSecond());
+        }
+    }
+
+    // plays random moves at the start of the game, then lets the engine play (also used by the FactorTuner)
+    static final class RandomOpening extends AI {
+        private final AI engine;
+        private final Random random;
+        private final int plies;
+
+        RandomOpening(AI engine, Random random, int plies) {
+            this.engine = engine;
+            this.random = random;
+            this.plies = plies;
+        }
+
+        @Override
+        public Coordinate playMove(char[][] board, Player player) {
+            BitBoard bitBoard = BitBoard.fromBoard(board);
+            // every piece covers two squares
+            if (bitBoard.occupiedCount() / 2 >= plies) {
+                return engine.playMove(board, player);
+            }
+            List<Coordinate> moves = new ArrayList<>();
+            for (int x = 0; x < bitBoard.getWidth(); x++) {
+                for (int y = 0; y < bitBoard.getHeight(); y++) {
+                    if (bitBoard.canPlace(x, y, player)) {
+                        moves.add(new Coordinate(x, y));
+                    }
+                }
+            }
+            return moves.get(random.nextInt(moves.size()));
+        }
+    }
+
+    /*
+        Usage: Tournament [games] [threads] [width] [height]
+
+        Plays the default HardMinMax against itself, every engine with its own scoreMap.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Supplier<AI> engine = () -> new HardMinMax(new BoardStorage(16));
+        Tournament tournament = new Tournament(engine, engine, threads);
+        tournament.width = args.length > 2 ? Integer.parseInt(args[2]) : Game.DEFAULT_SIZE;
+        tournament.height = args.length > 3 ? Integer.parseInt(args[3]) : tournament.width;
+        System.out.println(tournament.run(games));
+    }
+}
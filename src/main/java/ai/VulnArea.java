@@ -6,10 +6,9 @@ package ai;
  player could place a tile in a way which would obstruct both areas. We give these vulnerable areas a weight of 2. All
  others get a weight of one.
 */
-public class VulnArea extends Area {
+public final class VulnArea {
 
-    public VulnArea(int xOne, int yOne, int xTwo, int yTwo) {
-        super(xOne, yOne, xTwo, yTwo);
+    private VulnArea() {
     }
 
     public static int isVulnArea(char[][] board, int x, int y, Player player) {
@@ -23,11 +22,11 @@ public class VulnArea extends Area {
             // if other already existing areas are adjacent to the vulnerable area, it is considered a type II
             if (player == Player.V && (
                     (x - 1 >= 0 && (board[x - 1][y] == 'P' || board[x - 1][y] == 'S' || board[x - 1][y] == 'D'))
-                            || (x + 1 < board.length && y < board.length
+                            || (x + 1 < board.length && y < board[0].length
                             && (board[x + 1][y] == 'P' || board[x + 1][y] == 'S' || board[x + 1][y] == 'D'))
-                            || (x - 1 >= 0 && y + 1 <= board.length
+                            || (x - 1 >= 0 && y + 1 < board[0].length
                             && (board[x - 1][y + 1] == 'P' || board[x - 1][y + 1] == 'S' || board[x - 1][y + 1] == 'D'))
-                            || (x + 1 < board.length && y + 1 < board.length
+                            || (x + 1 < board.length && y + 1 < board[0].length
                             && (board[x + 1][y + 1] == 'P' || board[x + 1][y + 1] == 'S'
                             || board[x + 1][y + 1] == 'D')))) {
                 type = 2;
@@ -62,7 +61,8 @@ public class VulnArea extends Area {
         return type;
     }
 
-    public static VulnArea getVulnArea(int x, int y, Player player) {
-        return new VulnArea(x, y, x + (player == Player.H ? 1 : 0), y + (player == Player.V ? 1 : 0));
+    // the shape is given by the player (vertical or horizontal piece), so only the upper-left corner is packed
+    public static int getVulnArea(int x, int y) {
+        return Area.pack(x, y, 0);
     }
 }
@@ -0,0 +1,51 @@
+package ai;
+
+/*
+    Random keys for Zobrist hashing. Every square index gets its own 64-bit key and the key of a position is the XOR of
+    the keys of all occupied squares. Placing or removing a piece therefore only needs two XORs, independent of the
+    board size.
+
+    The keys are generated from a fixed seed, so the same position has the same key in every run. This is important
+    as soon as keys are written to disk.
+ */
+public final class Zobrist {
+    private static final long SEED = 0x5DEECE66DL;
+
+    // enough keys for boards up to 64x64, larger boards compute the remaining keys on the fly
+    private static final long[] SQUARE_KEYS = new long[64 * 64];
+
+    static {
+        for (int i = 0; i < SQUARE_KEYS.length; i++) {
+            SQUARE_KEYS[i] = mix(SEED + i);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    public static long squareKey(int index) {
+        return index < SQUARE_KEYS.length ? SQUARE_KEYS[index] : mix(SEED + index);
+    }
+
+    // the key of an empty board, which also separates boards with different dimensions from each other
+    public static long boardKey(int width, int height) {
+        return mix(~SEED ^ ((long) width << 32 | height));
+    }
+
+    // mixed into the key if the stored values depend on which player started the search
+    public static long starterKey(Player starter) {
+        return starter == Player.V ? mix(SEED - 1) : mix(SEED - 2);
+    }
+
+    // mixed into the key if the stored values depend on which player moves next
+    public static long sideToMoveKey(Player player) {
+        return player == Player.V ? mix(SEED - 3) : mix(SEED - 4);
+    }
+
+    // SplitMix64 finalizer, spreads every input bit over the whole output
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
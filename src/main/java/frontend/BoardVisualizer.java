@@ -1,6 +1,7 @@
 package frontend;
 
 import ai.Coordinate;
+import ai.Game;
 import ai.HardMinMax;
 import ai.Player;
 import processing.core.PApplet;
@@ -8,6 +9,12 @@ import processing.core.PApplet;
 import java.util.Arrays;
 
 public class BoardVisualizer extends PApplet {
+    // the longer side of the board fills the window
+    private static final int WINDOW_SIZE = 800;
+
+    // the board size can be given as arguments: BoardVisualizer [width] [height]
+    private static int boardWidth = Game.DEFAULT_SIZE;
+    private static int boardHeight = Game.DEFAULT_SIZE;
 
     char[][] board;
     int rectLength;
@@ -20,23 +27,25 @@ public class BoardVisualizer extends PApplet {
 
     // The argument passed to main must match the class name
     public static void main(String[] args) {
+        boardWidth = args.length > 0 ? Integer.parseInt(args[0]) : Game.DEFAULT_SIZE;
+        boardHeight = args.length > 1 ? Integer.parseInt(args[1]) : boardWidth;
         PApplet.main("frontend.BoardVisualizer");
     }
 
     // method for setting the size of the window
     public void settings() {
-        size(800, 800);
+        rectLength = WINDOW_SIZE / Math.max(boardWidth, boardHeight);
+        size(rectLength * boardWidth, rectLength * boardHeight);
     }
 
     // identical use to setup in Processing IDE except for size()
     public void setup() {
         background(120);
-        board = new char[13][13];
+        board = new char[boardWidth][boardHeight];
         for (char[] b : board) {
             Arrays.fill(b, 'E');
         }
 
-        rectLength = width / 13;
         frameRate(60);
         ai = new HardMinMax();
         ai2 = new HardMinMax();
@@ -66,7 +75,7 @@ public class BoardVisualizer extends PApplet {
 
     @Override
     public void mouseClicked() {
-        move = new Coordinate(mouseX / (width / 13), mouseY / (width / 13));
+        move = new Coordinate(mouseX / rectLength, mouseY / rectLength);
         if (!checkInvalidMoveSimple(board, move, curr)) {
             makeMove(board, move, curr);
             curr = curr.getOtherPlayer();
@@ -101,9 +110,11 @@ public class BoardVisualizer extends PApplet {
     // test if a returned move is valid
     private boolean checkInvalidMoveSimple(char[][] board, Coordinate move, Player p) {
         return move.getX() < 0
-                || move.getX() > 13
+                || move.getX() >= board.length
                 || move.getY() < 0
-                || move.getY() > 13
+                || move.getY() >= board[0].length
+                || (p == Player.H && move.getX() + 1 >= board.length)
+                || (p == Player.V && move.getY() + 1 >= board[0].length)
                 || board[move.getX()][move.getY()] != 'E'
                 || (p == Player.H && board[move.getX() + 1][move.getY()] != 'E')
                 || (p == Player.V && board[move.getX()][move.getY() + 1] != 'E');
@@ -0,0 +1,104 @@
+package ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BoardAnalyserTest {
+    // the BitmaskAnalyser has to find exactly the areas of the char scan, in the same order, and so the same bounds
+    @Test
+    void bitmaskAnalysisMatchesCharScan() {
+        Random random = new Random(25);
+        for (int i = 0; i < 200_000; i++) {
+            // mostly small boards, but every height the bitmask supports is covered as well
+            int width = 1 + random.nextInt(16);
+            int height = 1 + random.nextInt(16);
+            if (i % 50 == 0) {
+                width = 1 + random.nextInt(70);
+                height = 1 + random.nextInt(BitmaskAnalyser.MAX_HEIGHT);
+            }
+            BitBoard board = new BitBoard(width, height);
+            double fill = random.nextDouble() * 0.8;
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    if (random.nextDouble() < fill) {
+                        board.set(x, y);
+                    }
+                }
+            }
+
+            BoardAnalyser bitmask = new BoardAnalyser(width, height, true);
+            BoardAnalyser charScan = new BoardAnalyser(width, height, false);
+            bitmask.analyse(board, false);
+            charScan.analyse(board, false);
+            String message = "board " + i + " (" + width + "x" + height + ")";
+            assertEquals(describe(charScan.vertical), describe(bitmask.vertical), message);
+            assertEquals(describe(charScan.horizontal), describe(bitmask.horizontal), message);
+        }
+    }
+
+    // the IncrementalAnalyser has to give the areas of the char scan after every applied and undone move
+    @Test
+    void incrementalAnalysisMatchesCharScan() {
+        Random random = new Random(4);
+        for (int game = 0; game < 300; game++) {
+            // only boards which are too high for the bitmask use the incremental analysis
+            int width = 1 + random.nextInt(12);
+            int height = BitmaskAnalyser.MAX_HEIGHT + 1 + random.nextInt(12);
+            BitBoard board = new BitBoard(width, height);
+            int[] moves = new int[width * height];
+            Player[] players = new Player[width * height];
+            int count = 0;
+
+            IncrementalAnalyser incremental = new IncrementalAnalyser(width, height);
+            BoardAnalyser analyser = new BoardAnalyser(width, height);
+            BoardAnalyser charScan = new BoardAnalyser(width, height, false);
+            incremental.reset(board);
+            for (int step = 0; step < 400; step++) {
+                // mostly moves, but also undo a few of them to get back to earlier positions
+                if (count > 0 && random.nextInt(4) == 0) {
+                    count--;
+                    board.remove(Coordinate.unpackX(moves[count]), Coordinate.unpackY(moves[count]), players[count]);
+                    incremental.pop();
+                } else {
+                    Player player = random.nextBoolean() ? Player.V : Player.H;
+                    int x = random.nextInt(width);
+                    int y = random.nextInt(height);
+                    if (!board.canPlace(x, y, player)) {
+                        continue;
+                    }
+                    board.place(x, y, player);
+                    moves[count] = Coordinate.pack(x, y);
+                    players[count++] = player;
+                    incremental.push(board, Coordinate.pack(x, y), player);
+                }
+
+                analyser.analyse(board, incremental);
+                charScan.analyse(board, false);
+                String message = "game " + game + " step " + step + " (" + width + "x" + height + ")";
+                assertEquals(describe(charScan.vertical), describe(analyser.vertical), message);
+                assertEquals(describe(charScan.horizontal), describe(analyser.horizontal), message);
+            }
+        }
+    }
+
+    private static String describe(BoardLayout layout) {
+        StringBuilder description = new StringBuilder();
+        AreaList[] lists = {layout.protectiveAreas, layout.safeAreas, layout.vulnAreasOne, layout.vulnAreasTwo,
+                layout.vulnAreasProtectedOne, layout.vulnAreasProtectedTwo, layout.optionAreas};
+        for (AreaList list : lists) {
+            description.append('[');
+            for (int i = 0; i < list.size(); i++) {
+                description.append(' ').append(Integer.toHexString(list.get(i)));
+            }
+            description.append(" ]");
+        }
+        return description
+                .append(" bounds ").append(layout.lowerBound).append(' ').append(layout.upperBound)
+                .append(" squares ").append(layout.unavailableSquares).append(' ')
+                .append(layout.startAvailableSquares).append(' ').append(layout.unplayableSquares)
+                .toString();
+    }
+}
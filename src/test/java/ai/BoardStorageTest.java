@@ -0,0 +1,180 @@
+package ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoardStorageTest {
+    // four keys with the same bucket (the bucket index is the lower half of the key XOR the upper half)
+    private static final long A = 5;
+    private static final long B = (1L << 32) | 4;
+    private static final long C = (2L << 32) | 7;
+    private static final long D = (3L << 32) | 6;
+
+    // every field of the packed data has to come back unchanged, also at the ends of its range
+    @Test
+    void packedValuesSurviveTheRoundTrip() {
+        BoardStorage storage = new BoardStorage(1);
+        float[] scores = {0, -1.5f, 3.25f, 10000, -10000, 1e30f, -1e30f, Float.MIN_VALUE};
+        int[] moves = {-1, 0, Coordinate.pack(1, 0), Coordinate.pack(0, 1), Coordinate.pack(254, 254)};
+        int[] depths = {0, 1, 127, 255};
+        char[] types = {'=', '+', '-'};
+
+        long key = 1;
+        for (float score : scores) {
+            for (int move : moves) {
+                for (int depth : depths) {
+                    for (char type : types) {
+                        BoardStorage.StateInfo info = info(score, move, depth, type);
+                        storage.put(key, info);
+
+                        BoardStorage.StateInfo loaded = new BoardStorage.StateInfo();
+                        assertTrue(storage.get(key, loaded));
+                        String message = score + " " + move + " " + depth + " " + type;
+                        assertEquals(score, loaded.score, message);
+                        assertEquals(move, loaded.move, message);
+                        assertEquals(depth, loaded.depth, message);
+                        assertEquals(type, loaded.type, message);
+                        key += 0x9E3779B97F4A7C15L;
+                    }
+                }
+            }
+        }
+        // the largest packed move of a 255x255 board must not wrap to "no move"
+        assertEquals(0xFEFE, Coordinate.pack(BitBoard.MAX_SIZE - 1, BitBoard.MAX_SIZE - 1));
+    }
+
+    @Test
+    void depthPreferredSlotKeepsTheDeeperEntry() {
+        BoardStorage storage = new BoardStorage(1);
+        storage.put(A, info(1, -1, 5, '='));
+        // shallower entries only get the always-replace slot and replace each other there
+        storage.put(B, info(2, -1, 3, '='));
+        assertEquals(3, depth(storage, B));
+        storage.put(C, info(3, -1, 2, '='));
+        assertEquals(5, depth(storage, A));
+        assertEquals(2, depth(storage, C));
+        assertFalse(storage.get(B, new BoardStorage.StateInfo()));
+
+        // a deeper entry takes the depth-preferred slot and moves the old one to the always-replace slot
+        storage.put(D, info(4, -1, 6, '='));
+        assertEquals(6, depth(storage, D));
+        assertEquals(5, depth(storage, A));
+        assertFalse(storage.get(C, new BoardStorage.StateInfo()));
+    }
+
+    @Test
+    void entriesOfOlderSearchesAreReplaced() {
+        BoardStorage storage = new BoardStorage(1);
+        storage.put(A, info(1, -1, 9, '='));
+        storage.newSearch();
+        // the deep entry is from the last search (and wasn't probed since), so even a shallow entry replaces it
+        storage.put(B, info(2, -1, 1, '='));
+        storage.put(C, info(3, -1, 1, '='));
+        assertEquals(1, depth(storage, B));
+        assertEquals(1, depth(storage, C));
+        assertFalse(storage.get(A, new BoardStorage.StateInfo()));
+    }
+
+    @Test
+    void probedEntriesSurviveTheAging() {
+        BoardStorage storage = new BoardStorage(1);
+        storage.put(A, info(1, -1, 9, '='));
+        storage.newSearch();
+        // get moves the entry into the current search, so it is deep and current again
+        assertEquals(9, depth(storage, A));
+        storage.put(B, info(2, -1, 1, '='));
+        storage.put(C, info(3, -1, 1, '='));
+        assertEquals(9, depth(storage, A));
+        assertEquals(1, depth(storage, C));
+    }
+
+    // a board is never stored twice, otherwise get could find an older result before the new one
+    @Test
+    void boardOccupiesOnlyOneSlot() {
+        BoardStorage storage = new BoardStorage(1);
+        // a shallower result for the board in the depth-preferred slot replaces it there
+        storage.put(A, info(1, -1, 9, '='));
+        storage.put(A, info(2, -1, 3, '+'));
+        assertEquals(3, depth(storage, A));
+        assertEquals(1, usedEntries(storage));
+
+        // a deeper result for the board in the always-replace slot moves it to the depth-preferred slot
+        storage.put(B, info(3, -1, 12, '='));
+        assertEquals(2, usedEntries(storage));
+        storage.put(A, info(4, -1, 20, '='));
+        assertEquals(20, depth(storage, A));
+        assertEquals(12, depth(storage, B));
+        assertEquals(2, usedEntries(storage));
+
+        // and a shallower one replaces it in the always-replace slot
+        storage.put(B, info(5, -1, 1, '-'));
+        assertEquals(1, depth(storage, B));
+        assertEquals(20, depth(storage, A));
+        assertEquals(2, usedEntries(storage));
+    }
+
+    // a saved table can be loaded into a storage of another size and returns the same results there
+    @Test
+    void savedEntriesCanBeLoadedIntoAnotherSize() throws IOException {
+        BoardStorage storage = new BoardStorage(2);
+        long[] keys = new long[1000];
+        Random random = new Random(5);
+        for (int i = 0; i < keys.length; i++) {
+            // the lower half XOR the upper half of the key is i, so every key has its own bucket in both sizes
+            long upper = random.nextInt() & 0xFFFFFFFFL;
+            keys[i] = (upper << 32) | ((i ^ upper) & 0xFFFFFFFFL);
+            storage.put(keys[i], info(random.nextFloat() * 200 - 100, random.nextInt(1 << 16) - 1,
+                    random.nextInt(256), "=+-".charAt(random.nextInt(3))));
+        }
+
+        Path file = Files.createTempFile("scores", ".bin");
+        try {
+            storage.save(file);
+            for (int sizeInMegabytes : new int[]{1, 4}) {
+                BoardStorage loaded = new BoardStorage(sizeInMegabytes);
+                loaded.load(file);
+                for (long key : keys) {
+                    BoardStorage.StateInfo expected = new BoardStorage.StateInfo();
+                    BoardStorage.StateInfo actual = new BoardStorage.StateInfo();
+                    assertTrue(storage.get(key, expected));
+                    assertTrue(loaded.get(key, actual), sizeInMegabytes + " MB, key " + key);
+                    assertEquals(expected.score, actual.score);
+                    assertEquals(expected.move, actual.move);
+                    assertEquals(expected.depth, actual.depth);
+                    assertEquals(expected.type, actual.type);
+                }
+                assertFalse(loaded.get(keys[0] + 1, new BoardStorage.StateInfo()));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static BoardStorage.StateInfo info(float score, int move, int depth, char type) {
+        BoardStorage.StateInfo info = new BoardStorage.StateInfo();
+        info.score = score;
+        info.move = move;
+        info.depth = depth;
+        info.type = type;
+        return info;
+    }
+
+    private static int depth(BoardStorage storage, long key) {
+        BoardStorage.StateInfo info = new BoardStorage.StateInfo();
+        assertTrue(storage.get(key, info));
+        return info.depth;
+    }
+
+    // the keys of the tests are in one of the first buckets, which are part of the sample of usage()
+    private static long usedEntries(BoardStorage storage) {
+        return Math.round(storage.usage() * Math.min(storage.capacity(), 1 << 12));
+    }
+}
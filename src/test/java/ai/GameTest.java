@@ -0,0 +1,116 @@
+package ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameTest {
+    // the placement counts and the board views of Game have to end every game like a scan of the whole board does
+    @Test
+    void sameResultsAsFullBoardScan() {
+        Random random = new Random(24);
+        for (int game = 0; game < 3000; game++) {
+            int width = 1 + random.nextInt(11);
+            int height = 1 + random.nextInt(9);
+            long seed = random.nextLong();
+
+            AI vertical = new RandomAI(seed);
+            AI horizontal = new RandomAI(seed + 1);
+            Game incremental = new Game(vertical, horizontal, false, width, height);
+            incremental.runGame();
+
+            int moves = playWithFullScan(new RandomAI(seed), new RandomAI(seed + 1), width, height);
+            String message = "game " + game + " on " + width + "x" + height;
+            assertEquals(moves, incremental.getMoveCount(), message);
+            // the vertical player starts, so after an even number of moves it is the one which can't move anymore
+            assertSame(moves % 2 == 0 ? horizontal : vertical, incremental.getWinner(), message);
+        }
+    }
+
+    // an AI can only change its own view of the board, the game still knows which squares are occupied
+    @Test
+    void aiCantChangeTheBoardOfTheGame() {
+        AI vandal = new AI() {
+            private Coordinate firstMove;
+
+            @Override
+            public Coordinate playMove(char[][] board, Player player) {
+                if (firstMove == null) {
+                    firstMove = legalPlacements(board, player).get(0);
+                }
+                for (char[] column : board) {
+                    Arrays.fill(column, 'E');
+                }
+                return firstMove;
+            }
+        };
+        AI plain = new RandomAI(0);
+        Game game = new Game(vandal, plain);
+        game.runGame();
+
+        // the second try of the same move is invalid, even though the square looks empty to the vandal
+        assertEquals(2, game.getMoveCount());
+        assertSame(plain, game.getWinner());
+    }
+
+    // the same game without any bookkeeping: every turn the AI gets a copy, and the end is found by a full scan
+    private static int playWithFullScan(AI vertical, AI horizontal, int width, int height) {
+        char[][] board = new char[width][height];
+        for (char[] column : board) {
+            Arrays.fill(column, 'E');
+        }
+        Player player = Player.V;
+        int moves = 0;
+        while (!legalPlacements(board, player).isEmpty()) {
+            char[][] copy = new char[width][];
+            for (int x = 0; x < width; x++) {
+                copy[x] = board[x].clone();
+            }
+            Coordinate move = (player == Player.V ? vertical : horizontal).playMove(copy, player);
+            assertTrue(legalPlacements(board, player).contains(move), "illegal move " + move);
+
+            char piece = player == Player.V ? 'V' : 'H';
+            board[move.getX()][move.getY()] = piece;
+            board[move.getX() + (player == Player.H ? 1 : 0)][move.getY() + (player == Player.V ? 1 : 0)] = piece;
+            moves++;
+            player = player.getOtherPlayer();
+        }
+        return moves;
+    }
+
+    private static List<Coordinate> legalPlacements(char[][] board, Player player) {
+        int dx = player == Player.H ? 1 : 0;
+        int dy = player == Player.V ? 1 : 0;
+        List<Coordinate> placements = new ArrayList<>();
+        for (int x = 0; x + dx < board.length; x++) {
+            for (int y = 0; y + dy < board[x].length; y++) {
+                if (board[x][y] == 'E' && board[x + dx][y + dy] == 'E') {
+                    placements.add(new Coordinate(x, y));
+                }
+            }
+        }
+        return placements;
+    }
+
+    // plays a random legal placement of the board it gets, the same seed always plays the same game
+    private static final class RandomAI extends AI {
+        private final Random random;
+
+        RandomAI(long seed) {
+            this.random = new Random(seed);
+        }
+
+        @Override
+        public Coordinate playMove(char[][] board, Player player) {
+            List<Coordinate> placements = legalPlacements(board, player);
+            return placements.get(random.nextInt(placements.size()));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegionSolverTest {
+    private static final int BOARDS = 3000;
+
+    // a sum of numbers has to decide the game like a search of every move sequence does
+    @Test
+    void numberSumDecidesTheGame() {
+        Random random = new Random(13);
+        int decided = 0;
+        for (int test = 0; test < BOARDS; test++) {
+            BitBoard board = randomBoard(random);
+            RegionSolver solver = new RegionSolver(board.getWidth(), board.getHeight());
+            solver.decompose(board);
+            double sum = solver.numberSum();
+            if (!RegionSolver.isNumber(sum)) {
+                continue;
+            }
+            decided++;
+
+            BruteForce bruteForce = new BruteForce(board);
+            for (Player player : Player.values()) {
+                // positive is a win for V, negative for H and zero for the player who doesn't move
+                Player winner = sum > 0 ? Player.V : (sum < 0 ? Player.H : player.getOtherPlayer());
+                assertEquals(winner == player, bruteForce.wins(player, occupiedMask(board)),
+                        describe(board) + ", sum " + sum + ", " + player + " to move");
+            }
+        }
+        assertTrue(decided > BOARDS / 10, "only " + decided + " boards were decided by the number sum");
+    }
+
+    // as long as a region is hot, a player who can win can also win without moving in a region which is a number
+    @Test
+    void numberAvoidanceKeepsAWinningMove() {
+        Random random = new Random(31);
+        int hot = 0;
+        for (int test = 0; test < BOARDS; test++) {
+            BitBoard board = randomBoard(random);
+            RegionSolver solver = new RegionSolver(board.getWidth(), board.getHeight());
+            solver.decompose(board);
+            if (!solver.hasHotComponent()) {
+                continue;
+            }
+            hot++;
+
+            BruteForce bruteForce = new BruteForce(board);
+            for (Player player : Player.values()) {
+                boolean winningMove = false;
+                boolean avoidingWinningMove = false;
+                for (int x = 0; x < board.getWidth(); x++) {
+                    for (int y = 0; y < board.getHeight(); y++) {
+                        if (!board.canPlace(x, y, player)) {
+                            continue;
+                        }
+                        board.place(x, y, player);
+                        boolean wins = !bruteForce.wins(player.getOtherPlayer(), occupiedMask(board));
+                        board.remove(x, y, player);
+
+                        double value = solver.getComponentValue(solver.componentOfMove(Coordinate.pack(x, y)));
+                        winningMove |= wins;
+                        avoidingWinningMove |= wins && !RegionSolver.isNumber(value);
+                    }
+                }
+                assertEquals(winningMove, avoidingWinningMove, describe(board) + ", " + player + " to move");
+            }
+        }
+        assertTrue(hot > BOARDS / 10, "only " + hot + " boards had a hot region");
+    }
+
+    // boards up to 5x5 with a random part of the squares occupied
+    private static BitBoard randomBoard(Random random) {
+        BitBoard board = new BitBoard(1 + random.nextInt(5), 1 + random.nextInt(5));
+        double occupied = 0.2 + 0.4 * random.nextDouble();
+        for (int x = 0; x < board.getWidth(); x++) {
+            for (int y = 0; y < board.getHeight(); y++) {
+                if (random.nextDouble() < occupied) {
+                    board.set(x, y);
+                }
+            }
+        }
+        return board;
+    }
+
+    // the occupied squares of a board with at most 64 squares, square (x, y) is the bit x * height + y
+    private static long occupiedMask(BitBoard board) {
+        long mask = 0;
+        for (int x = 0; x < board.getWidth(); x++) {
+            for (int y = 0; y < board.getHeight(); y++) {
+                if (!board.isEmpty(x, y)) {
+                    mask |= 1L << (x * board.getHeight() + y);
+                }
+            }
+        }
+        return mask;
+    }
+
+    private static String describe(BitBoard board) {
+        return board.getWidth() + "x" + board.getHeight() + " occupied " + Long.toHexString(occupiedMask(board));
+    }
+
+    // plays out every move sequence, a player who can't move anymore loses
+    private static final class BruteForce {
+        private final int width;
+        private final int height;
+        private final Map<Long, Boolean> wins = new HashMap<>();
+
+        BruteForce(BitBoard board) {
+            this.width = board.getWidth();
+            this.height = board.getHeight();
+        }
+
+        boolean wins(Player player, long occupied) {
+            long key = occupied << 1 | (player == Player.V ? 1 : 0);
+            Boolean known = wins.get(key);
+            if (known != null) {
+                return known;
+            }
+            boolean result = false;
+            for (int x = 0; x < width && !result; x++) {
+                for (int y = 0; y < height && !result; y++) {
+                    int square = x * height + y;
+                    int other = player == Player.V ? square + 1 : square + height;
+                    boolean fits = player == Player.V ? y + 1 < height : x + 1 < width;
+                    if (fits && (occupied & (1L << square)) == 0 && (occupied & (1L << other)) == 0) {
+                        result = !wins(player.getOtherPlayer(), occupied | (1L << square) | (1L << other));
+                    }
+                }
+            }
+            wins.put(key, result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SymmetryTest {
+    private static final int[][] SIZES = {{13, 13}, {8, 11}, {11, 8}, {5, 5}, {1, 6}};
+
+    // each variant key has to be the key of the board transformed square by square, also when it is kept up to date
+    @Test
+    void variantKeysMatchTransformedBoards() {
+        Random random = new Random(42);
+        for (int[] size : SIZES) {
+            BitBoard board = new BitBoard(size[0], size[1]);
+            playRandomMoves(board, random, 4);
+            assertVariantKeys(board);
+
+            // from now on the variant keys are updated with every move, of the board and of its copies
+            BitBoard copy = board.copy();
+            playRandomMoves(board, random, 6);
+            assertVariantKeys(board);
+            playRandomMoves(copy, random, 3);
+            assertVariantKeys(copy);
+        }
+    }
+
+    // transforming a move has to give the move of the transformed board, and the inverse has to bring it back
+    @Test
+    void movesSurviveTheRoundTrip() {
+        Random random = new Random(7);
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            BitBoard board = new BitBoard(width, height);
+            playRandomMoves(board, random, 5);
+
+            for (int symmetry = 0; symmetry < board.symmetryCount(); symmetry++) {
+                int inverse = Symmetry.inverse(symmetry);
+                BitBoard transformed = transform(board, symmetry);
+                for (Player player : Player.values()) {
+                    Player transformedPlayer = Symmetry.transformPlayer(symmetry, player);
+                    for (int x = 0; x < width; x++) {
+                        for (int y = 0; y < height; y++) {
+                            if (!board.canPlace(x, y, player)) {
+                                continue;
+                            }
+                            int move = Coordinate.pack(x, y);
+                            int transformedMove = Symmetry.transformMove(symmetry, move, player, width, height);
+                            int tx = Coordinate.unpackX(transformedMove);
+                            int ty = Coordinate.unpackY(transformedMove);
+                            String message = width + "x" + height + " " + symmetry + " " + player + " " + x + "," + y;
+                            assertTrue(transformed.canPlace(tx, ty, transformedPlayer), message);
+
+                            // both ways around lead to the same position
+                            BitBoard played = board.copy();
+                            played.place(x, y, player);
+                            transformed.place(tx, ty, transformedPlayer);
+                            assertEquals(transform(played, symmetry), transformed, message);
+                            transformed.remove(tx, ty, transformedPlayer);
+
+                            int transformedWidth = Symmetry.swapsPlayers(symmetry) ? height : width;
+                            int transformedHeight = Symmetry.swapsPlayers(symmetry) ? width : height;
+                            assertEquals(move, Symmetry.transformMove(inverse, transformedMove, transformedPlayer,
+                                    transformedWidth, transformedHeight), message);
+                            assertEquals(player, Symmetry.transformPlayer(inverse, transformedPlayer), message);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertVariantKeys(BitBoard board) {
+        for (int symmetry = 0; symmetry < board.symmetryCount(); symmetry++) {
+            assertEquals(transform(board, symmetry).getKey(), board.getKey(symmetry),
+                    board.getWidth() + "x" + board.getHeight() + " " + symmetry);
+        }
+    }
+
+    private static BitBoard transform(BitBoard board, int symmetry) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        BitBoard transformed = Symmetry.swapsPlayers(symmetry)
+                ? new BitBoard(height, width)
+                : new BitBoard(width, height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (!board.isEmpty(x, y)) {
+                    int square = Symmetry.transformSquare(symmetry, x, y, width, height);
+                    transformed.set(Coordinate.unpackX(square), Coordinate.unpackY(square));
+                }
+            }
+        }
+        return transformed;
+    }
+
+    private static void playRandomMoves(BitBoard board, Random random, int moves) {
+        for (int move = 0; move < moves; move++) {
+            Player player = move % 2 == 0 ? Player.V : Player.H;
+            int x = random.nextInt(board.getWidth());
+            int y = random.nextInt(board.getHeight());
+            for (int tries = 0; tries < 100 && !board.canPlace(x, y, player); tries++) {
+                x = random.nextInt(board.getWidth());
+                y = random.nextInt(board.getHeight());
+            }
+            if (board.canPlace(x, y, player)) {
+                board.place(x, y, player);
+            }
+        }
+    }
+}